@@ -0,0 +1,135 @@
+package com.expense.manager.cache;
+
+import com.expense.manager.model.Expense;
+import com.expense.manager.util.ExpenseIdMarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of expenses (with employee names and approval status) that
+ * can be queried like the database. The high-water marks record how far the
+ * copy has caught up: the per-shard id marks the new rows were found with (see
+ * ExpenseIdMarks) and the date of the last refresh, so the next refresh only
+ * fetches newer rows and newer reviews.
+ */
+public class ExpenseCache
+{
+    private static final Comparator<Expense> NEWEST_FIRST =
+            Comparator.comparing(Expense::getDate, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final Map<Integer, Expense> expenses = new ConcurrentHashMap<>();
+    private volatile int maxExpenseId;
+    private volatile String lastRefreshDate;
+    // Replaced, never modified, so a snapshot can capture it before the rows
+    private volatile ExpenseIdMarks idMarks = new ExpenseIdMarks();
+
+    public int getMaxExpenseId() { return maxExpenseId; }
+    public String getLastRefreshDate() { return lastRefreshDate; }
+    public ExpenseIdMarks getIdMarks() { return idMarks; }
+    public int size() { return expenses.size(); }
+
+    public synchronized void apply(Collection<Expense> changed)
+    {
+        int max = maxExpenseId;
+        for (Expense expense : changed)
+        {
+            expenses.put(expense.getId(), expense);
+            if (expense.getId() > max)
+            {
+                max = expense.getId();
+            }
+        }
+        maxExpenseId = max;
+    }
+
+    // Applies new rows together with the marks they were found with
+    public synchronized void apply(Collection<Expense> added, ExpenseIdMarks marks)
+    {
+        apply(added);
+        idMarks = marks;
+    }
+
+    // Updates an expense already in the cache without moving the high-water mark
+    public void replace(Expense expense)
+    {
+        expenses.replace(expense.getId(), expense);
+    }
+
+    public void setLastRefreshDate(String date)
+    {
+        lastRefreshDate = date;
+    }
+
+    public Expense get(int id)
+    {
+        return expenses.get(id);
+    }
+
+    public Collection<Expense> all()
+    {
+        return expenses.values();
+    }
+
+    public List<Expense> getPendingExpenses()
+    {
+        return getExpensesByStatus("pending");
+    }
+
+    public List<Expense> getExpensesByStatus(String status)
+    {
+        return select(expense -> status.equalsIgnoreCase(expense.getStatus()));
+    }
+
+    public List<Expense> getExpensesByEmployee(String username)
+    {
+        // The database matches usernames case-insensitively
+        return select(expense -> username.equalsIgnoreCase(expense.getEmployeeName()));
+    }
+
+    // One pass over the cache for the whole team rather than one per employee
+    public Map<String, List<Expense>> getExpensesByEmployees(Collection<String> usernames)
+    {
+        Map<String, List<Expense>> byEmployee = new LinkedHashMap<>();
+        // Requested spelling by lower-case username, since the database ignores case
+        Map<String, String> requested = new HashMap<>();
+        for (String username : usernames)
+        {
+            byEmployee.put(username, new ArrayList<>());
+            requested.putIfAbsent(username.toLowerCase(), username);
+        }
+        Map<String, List<Expense>> matches = expenses.values().parallelStream()
+                .filter(expense -> expense.getEmployeeName() != null
+                        && requested.containsKey(expense.getEmployeeName().toLowerCase()))
+                .collect(Collectors.groupingByConcurrent(expense -> requested.get(expense.getEmployeeName().toLowerCase())));
+        matches.forEach((username, list) -> {
+            list.sort(NEWEST_FIRST);
+            byEmployee.put(username, list);
+        });
+        return byEmployee;
+    }
+
+    public List<Expense> getExpensesByDateRange(String startDate, String endDate)
+    {
+        // Same inclusive bounds as BETWEEN on ISO date strings
+        return select(expense -> expense.getDate() != null
+                && expense.getDate().compareTo(startDate) >= 0
+                && expense.getDate().compareTo(endDate) <= 0);
+    }
+
+    private List<Expense> select(Predicate<Expense> filter)
+    {
+        return expenses.values().parallelStream()
+                .filter(filter)
+                .sorted(NEWEST_FIRST)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,206 @@
+package com.expense.manager.cache;
+
+import com.expense.manager.model.Expense;
+import com.expense.manager.util.ExpenseIdMarks;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of an ExpenseCache.
+ *
+ * Layout: magic, version, high-water marks (the largest id, the refresh date and
+ * the per-shard id marks, so a restart fetches only what is newer), then a table
+ * of user names and a table of distinct status strings, then one fixed-order
+ * record per expense that refers to those tables by index. Snapshots are written
+ * to a temporary file and renamed into place, and read back through a
+ * memory-mapped buffer.
+ */
+public class ExpenseSnapshot
+{
+    private static final int MAGIC = 0x45585053; // "EXPS"
+    // 2: per-shard id marks
+    private static final int VERSION = 2;
+
+    public static void write(ExpenseCache cache, Path file) throws IOException
+    {
+        // Capture the marks first: rows applied while writing are re-fetched next time
+        int maxExpenseId = cache.getMaxExpenseId();
+        String lastRefreshDate = cache.getLastRefreshDate();
+        ExpenseIdMarks idMarks = cache.getIdMarks();
+        int[] shardMarks = idMarks.getShardHighWaterMarks();
+
+        List<Expense> expenses = new ArrayList<>(cache.all());
+        Map<Integer, String> userNames = new HashMap<>();
+        Map<String, Integer> statuses = new HashMap<>();
+        List<String> statusTable = new ArrayList<>();
+        for (Expense expense : expenses)
+        {
+            userNames.putIfAbsent(expense.getUserId(), expense.getEmployeeName());
+            if (expense.getStatus() != null && !statuses.containsKey(expense.getStatus()))
+            {
+                statuses.put(expense.getStatus(), statusTable.size());
+                statusTable.add(expense.getStatus());
+            }
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null)
+        {
+            Files.createDirectories(file.getParent());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(maxExpenseId);
+            writeString(out, lastRefreshDate);
+            out.writeInt(idMarks.getHighWaterMark());
+            out.writeInt(shardMarks.length);
+            for (int mark : shardMarks)
+            {
+                out.writeInt(mark);
+            }
+
+            out.writeInt(userNames.size());
+            for (Map.Entry<Integer, String> user : userNames.entrySet())
+            {
+                out.writeInt(user.getKey());
+                writeString(out, user.getValue());
+            }
+
+            out.writeInt(statusTable.size());
+            for (String status : statusTable)
+            {
+                writeString(out, status);
+            }
+
+            out.writeInt(expenses.size());
+            for (Expense expense : expenses)
+            {
+                out.writeInt(expense.getId());
+                out.writeInt(expense.getUserId());
+                out.writeDouble(expense.getAmount());
+                out.writeByte(expense.getStatus() == null ? -1 : statuses.get(expense.getStatus()));
+                writeString(out, expense.getDate());
+                writeString(out, expense.getDescription());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+        {
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot, or returns null if the file is missing, from another
+     * version, or damaged; the caller then starts cold.
+     */
+    public static ExpenseCache load(Path file) throws IOException
+    {
+        if (!Files.exists(file))
+        {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION)
+            {
+                return null;
+            }
+            int maxExpenseId = in.getInt();
+            String lastRefreshDate = readString(in);
+            int highWaterMark = in.getInt();
+            int[] shardMarks = new int[in.getInt()];
+            for (int i = 0; i < shardMarks.length; i++)
+            {
+                shardMarks[i] = in.getInt();
+            }
+
+            int userCount = in.getInt();
+            Map<Integer, String> userNames = new HashMap<>(userCount * 2);
+            for (int i = 0; i < userCount; i++)
+            {
+                userNames.put(in.getInt(), readString(in));
+            }
+
+            String[] statusTable = new String[in.getInt()];
+            for (int i = 0; i < statusTable.length; i++)
+            {
+                statusTable[i] = readString(in);
+            }
+
+            int count = in.getInt();
+            List<Expense> expenses = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                int id = in.getInt();
+                int userId = in.getInt();
+                double amount = in.getDouble();
+                int status = in.get();
+                String date = readString(in);
+                String description = readString(in);
+
+                Expense expense = new Expense(id, userId, amount, description, date);
+                expense.setEmployeeName(userNames.get(userId));
+                expense.setStatus(status < 0 ? null : statusTable[status]);
+                expenses.add(expense);
+            }
+
+            ExpenseCache cache = new ExpenseCache();
+            cache.apply(expenses, ExpenseIdMarks.restore(highWaterMark, shardMarks));
+            cache.setLastRefreshDate(lastRefreshDate);
+            if (cache.getMaxExpenseId() < maxExpenseId)
+            {
+                return null;
+            }
+            return cache;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e)
+        {
+            System.err.println("Ignoring damaged expense snapshot " + file + ": " + e);
+            return null;
+        }
+    }
+
+    // Length -1 encodes null
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in)
+    {
+        int length = in.getInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
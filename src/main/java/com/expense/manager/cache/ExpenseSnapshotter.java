@@ -0,0 +1,53 @@
+package com.expense.manager.cache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the cache to its snapshot file periodically in the background and
+ * once more on close.
+ */
+public class ExpenseSnapshotter implements AutoCloseable
+{
+    private final ExpenseCache cache;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+
+    public ExpenseSnapshotter(ExpenseCache cache, Path file, long intervalMillis)
+    {
+        this.cache = cache;
+        this.file = file;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expense-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void write() throws IOException
+    {
+        ExpenseSnapshot.write(cache, file);
+    }
+
+    private void writeQuietly()
+    {
+        try
+        {
+            write();
+        } catch (IOException e)
+        {
+            System.err.println("Failed to write expense snapshot: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        scheduler.shutdownNow();
+        write();
+    }
+}
@@ -0,0 +1,229 @@
+package com.expense.manager.cache;
+
+import com.expense.manager.model.Expense;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches report results by report type and parameters.
+ *
+ * Entries are evicted least-recently-used once their estimated size passes
+ * maxBytes, and expire after maxAgeMillis so decisions made by other managers
+ * show up eventually. A decision made through this application invalidates only
+ * the entries it can change: the status reports for the old and new status, the
+ * date-range reports covering the expense date, and the employee's report.
+ *
+ * Every invalidation starts a new generation. A result is only cached if no
+ * invalidation happened while it was queried, since it may predate the change.
+ */
+public class ReportCache
+{
+    public enum ReportType { EMPLOYEE, DATE_RANGE, STATUS }
+
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final Map<ReportKey, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ReportCache(long maxBytes, long maxAgeMillis)
+    {
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public static ReportKey key(ReportType type, String... params)
+    {
+        return new ReportKey(type, params);
+    }
+
+    public synchronized List<Expense> get(ReportKey key)
+    {
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.createdAt > maxAgeMillis)
+        {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null)
+        {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.expenses;
+    }
+
+    // Read before running a report's query, and passed to put with its result
+    public synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    public synchronized List<Expense> put(ReportKey key, List<Expense> expenses, long queriedInGeneration)
+    {
+        Entry entry = new Entry(Collections.unmodifiableList(expenses), estimateBytes(key, expenses));
+        if (entry.bytes > maxBytes || queriedInGeneration != generation)
+        {
+            return entry.expenses;
+        }
+
+        remove(key);
+        entries.put(key, entry);
+        currentBytes += entry.bytes;
+
+        Iterator<Map.Entry<ReportKey, Entry>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext())
+        {
+            currentBytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions.increment();
+        }
+        return entry.expenses;
+    }
+
+    /**
+     * Drops the entries that a status change of this expense could affect.
+     */
+    public synchronized void invalidate(Expense expense, String newStatus)
+    {
+        generation++;
+        Iterator<Map.Entry<ReportKey, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext())
+        {
+            Map.Entry<ReportKey, Entry> candidate = it.next();
+            if (affects(candidate.getKey(), expense, newStatus))
+            {
+                currentBytes -= candidate.getValue().bytes;
+                it.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    public synchronized void clear()
+    {
+        generation++;
+        invalidations.add(entries.size());
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getCurrentBytes() { return currentBytes; }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getInvalidations() { return invalidations.sum(); }
+
+    public double getHitRate()
+    {
+        long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("entries=%d, bytes=%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, invalidations=%d",
+                size(), getCurrentBytes(), getHits(), getMisses(), getHitRate() * 100, getEvictions(), getInvalidations());
+    }
+
+    private static boolean affects(ReportKey key, Expense expense, String newStatus)
+    {
+        switch (key.type)
+        {
+            case STATUS:
+                return key.params[0].equalsIgnoreCase(String.valueOf(expense.getStatus()))
+                        || key.params[0].equalsIgnoreCase(newStatus);
+            case DATE_RANGE:
+                String date = expense.getDate();
+                return date == null || (date.compareTo(key.params[0]) >= 0 && date.compareTo(key.params[1]) <= 0);
+            case EMPLOYEE:
+                return key.params[0].equalsIgnoreCase(expense.getEmployeeName());
+            default:
+                return true;
+        }
+    }
+
+    private void remove(ReportKey key)
+    {
+        Entry old = entries.remove(key);
+        if (old != null)
+        {
+            currentBytes -= old.bytes;
+        }
+    }
+
+    // Rough heap footprint: object headers and fields plus two bytes per string char
+    private static long estimateBytes(ReportKey key, List<Expense> expenses)
+    {
+        long bytes = 128;
+        for (String param : key.params)
+        {
+            bytes += 40 + 2L * param.length();
+        }
+        for (Expense expense : expenses)
+        {
+            bytes += 72 + stringBytes(expense.getDescription()) + stringBytes(expense.getDate())
+                    + stringBytes(expense.getEmployeeName()) + stringBytes(expense.getStatus());
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value)
+    {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    public static class ReportKey
+    {
+        private final ReportType type;
+        private final String[] params;
+
+        ReportKey(ReportType type, String... params)
+        {
+            this.type = type;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (!(o instanceof ReportKey)) return false;
+            ReportKey other = (ReportKey) o;
+            return type == other.type && Arrays.equals(params, other.params);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * type.hashCode() + Arrays.hashCode(params);
+        }
+    }
+
+    private static class Entry
+    {
+        private final List<Expense> expenses;
+        private final long bytes;
+        private final long createdAt = System.currentTimeMillis();
+
+        Entry(List<Expense> expenses, long bytes)
+        {
+            this.expenses = expenses;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.Approval;
+import com.expense.manager.util.SqlErrors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes batches of approval decisions for the background writers, so that one
+ * bad decision can neither hold back nor take down the rest of its batch.
+ *
+ * A batch is first written in one transaction. Transient errors (lost connection,
+ * deadlock, lock wait timeout) are thrown for the caller to retry the batch. Any
+ * other error fails the whole transaction, so the batch is then written one
+ * decision at a time to find the decisions causing it. Those, and decisions whose
+ * expense has no approval row, are appended to the dead-letter file and reported.
+ * Once write() returns, every decision is either in the table or in the
+ * dead-letter file on disk.
+ */
+class ApprovalBatchWriter
+{
+    private final ApprovalDAO target;
+    private final Path deadLetterFile;
+
+    ApprovalBatchWriter(ApprovalDAO target, Path deadLetterFile)
+    {
+        this.target = target;
+        this.deadLetterFile = deadLetterFile;
+    }
+
+    /**
+     * Writes the decisions and returns how many went to the dead-letter file.
+     */
+    int write(List<Approval> approvals) throws Exception
+    {
+        if (approvals.isEmpty())
+        {
+            return 0;
+        }
+
+        List<String> rejected = new ArrayList<>();
+        try
+        {
+            for (Approval approval : target.updateApprovals(approvals))
+            {
+                rejected.add(deadLetter(approval, "no approval row for this expense"));
+            }
+        } catch (Exception e)
+        {
+            if (SqlErrors.isTransient(e))
+            {
+                throw e;
+            }
+            // Rewriting a decision that did commit is harmless; the values are the same
+            rejected.clear();
+            for (Approval approval : approvals)
+            {
+                try
+                {
+                    for (Approval unmatched : target.updateApprovals(List.of(approval)))
+                    {
+                        rejected.add(deadLetter(unmatched, "no approval row for this expense"));
+                    }
+                } catch (Exception rowError)
+                {
+                    if (SqlErrors.isTransient(rowError))
+                    {
+                        throw rowError;
+                    }
+                    rejected.add(deadLetter(approval, String.valueOf(rowError.getMessage())));
+                }
+            }
+        }
+
+        if (!rejected.isEmpty())
+        {
+            append(rejected);
+            System.err.println(rejected.size() + " approval decisions could not be written to the database; see " + deadLetterFile);
+        }
+        return rejected.size();
+    }
+
+    private static String deadLetter(Approval approval, String reason)
+    {
+        return Instant.now() + "\texpense=" + approval.getExpenseId()
+                + "\tstatus=" + approval.getStatus()
+                + "\treviewer=" + approval.getReviewerId()
+                + "\treviewDate=" + approval.getReviewDate()
+                + "\tcomment=" + escape(approval.getComment())
+                + "\treason=" + escape(reason) + "\n";
+    }
+
+    // One record per line
+    private static String escape(String text)
+    {
+        if (text == null)
+        {
+            return "";
+        }
+        return text.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+    }
+
+    private void append(List<String> records) throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        for (String record : records)
+        {
+            text.append(record);
+        }
+        try (FileChannel channel = FileChannel.open(deadLetterFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            // The caller advances its checkpoint past these decisions next
+            channel.force(true);
+        }
+    }
+
+    // "projector.checkpoint" -> "projector.deadletter", next to the checkpoint
+    static Path deadLetterFileFor(Path checkpointFile)
+    {
+        String name = checkpointFile.getFileName().toString();
+        if (name.endsWith(".checkpoint"))
+        {
+            name = name.substring(0, name.length() - ".checkpoint".length());
+        }
+        return checkpointFile.resolveSibling(name + ".deadletter");
+    }
+}
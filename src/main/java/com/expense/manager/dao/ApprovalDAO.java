@@ -2,8 +2,13 @@ package com.expense.manager.dao;
 
 import com.expense.manager.model.Approval;
 
+import java.util.List;
+
 public interface ApprovalDAO
 {
     Approval getApprovalByExpenseId(int expenseId) throws Exception;
     void updateApproval(int expenseId, String status, int reviewerId, String comment, String reviewDate) throws Exception;
+    // Applies the updates in one transaction per database; returns the approvals that matched no row. A sharded
+    // DAO commits each shard separately, so a failure can leave some shards updated; retrying the whole list is safe.
+    List<Approval> updateApprovals(List<Approval> approvals) throws Exception;
 }
@@ -2,25 +2,35 @@ package com.expense.manager.dao;
 
 
 import com.expense.manager.model.Approval;
+import com.expense.manager.util.ConnectionProvider;
+import com.expense.manager.util.SingleConnectionProvider;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ApprovalDAOImplementation implements ApprovalDAO
 {
-    private Connection conn;
+    private ConnectionProvider connections;
 
     public ApprovalDAOImplementation(Connection conn)
     {
-        this.conn = conn;
+        this(new SingleConnectionProvider(conn));
+    }
+
+    public ApprovalDAOImplementation(ConnectionProvider connections)
+    {
+        this.connections = connections;
     }
 
     @Override
     public Approval getApprovalByExpenseId(int expenseId) throws Exception
     {
         String query = "SELECT * FROM approvals WHERE expense_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query))
+        try (PreparedStatement stmt = connections.getPrimaryReadConnection().prepareStatement(query))
         {
             stmt.setInt(1, expenseId);
             ResultSet rs = stmt.executeQuery();
@@ -44,7 +54,7 @@ public class ApprovalDAOImplementation implements ApprovalDAO
     public void updateApproval(int expenseId, String status, int reviewerId, String comment, String reviewDate) throws Exception
     {
         String query = "UPDATE approvals SET status = ?, reviewer = ?, comment = ?, review_date = ? WHERE expense_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query))
+        try (PreparedStatement stmt = connections.getWriteConnection().prepareStatement(query))
         {
             stmt.setString(1, status);
             stmt.setInt(2, reviewerId);
@@ -59,4 +69,57 @@ public class ApprovalDAOImplementation implements ApprovalDAO
             }
         }
     }
-}
\ No newline at end of file
+
+    // Turns auto-commit off for the batch, so the connection must not be shared with other threads
+    @Override
+    public List<Approval> updateApprovals(List<Approval> approvals) throws Exception
+    {
+        List<Approval> unmatched = new ArrayList<>();
+        if (approvals.isEmpty())
+        {
+            return unmatched;
+        }
+
+        String query = "UPDATE approvals SET status = ?, reviewer = ?, comment = ?, review_date = ? WHERE expense_id = ?";
+        Connection conn = connections.getWriteConnection();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(query))
+        {
+            for (Approval approval : approvals)
+            {
+                stmt.setString(1, approval.getStatus());
+                if (approval.getReviewerId() == null)
+                {
+                    stmt.setNull(2, Types.INTEGER);
+                } else
+                {
+                    stmt.setInt(2, approval.getReviewerId());
+                }
+                stmt.setString(3, approval.getComment());
+                stmt.setString(4, approval.getReviewDate());
+                stmt.setInt(5, approval.getExpenseId());
+                stmt.addBatch();
+            }
+
+            int[] counts = stmt.executeBatch();
+            conn.commit();
+
+            for (int i = 0; i < counts.length; i++)
+            {
+                if (counts[i] == 0)
+                {
+                    unmatched.add(approvals.get(i));
+                }
+            }
+            return unmatched;
+        } catch (Exception e)
+        {
+            conn.rollback();
+            throw e;
+        } finally
+        {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
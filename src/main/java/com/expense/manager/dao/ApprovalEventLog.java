@@ -0,0 +1,613 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.ApprovalEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of approval decisions, stored in fixed-size memory-mapped
+ * segment files (approvals-0000000001.log, ...).
+ *
+ * Each record is [payload length][CRC32 of payload][payload]; a zero length marks
+ * the end of a segment. A position is (segment id << 32 | offset) and always
+ * points just past a record, so positions order the log and can be used as
+ * checkpoints. appendDurable() returns once a background flusher has forced the
+ * record to disk; appenders that arrive within one flush interval share a single
+ * fsync (group commit).
+ */
+public class ApprovalEventLog implements AutoCloseable
+{
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 2;
+
+    private static final String SEGMENT_PREFIX = "approvals-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACT_SUFFIX = ".compact";
+    private static final int HEADER_BYTES = 8;
+
+    public interface EventVisitor
+    {
+        // position is the log position just past this event
+        void visit(long position, ApprovalEvent event);
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long flushIntervalMillis;
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int segmentId;
+    private int writeOffset;
+    private int dirtyFrom;
+    private long writePosition;
+    private long durablePosition;
+    private boolean closed;
+    private final Thread flusher;
+
+    public ApprovalEventLog(Path directory) throws IOException
+    {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public ApprovalEventLog(Path directory, int segmentSize, long flushIntervalMillis) throws IOException
+    {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+
+        Files.createDirectories(directory);
+        try (Stream<Path> stale = Files.list(directory))
+        {
+            for (Path path : (Iterable<Path>) stale::iterator)
+            {
+                if (path.getFileName().toString().endsWith(COMPACT_SUFFIX))
+                {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        List<Integer> segments = segmentIds();
+        openSegment(segments.isEmpty() ? 1 : segments.get(segments.size() - 1));
+        recoverWriteOffset();
+        durablePosition = writePosition;
+
+        flusher = new Thread(this::flushLoop, "approval-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public static long position(int segmentId, int offset)
+    {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    public static int segmentOf(long position)
+    {
+        return (int) (position >>> 32);
+    }
+
+    public static int offsetOf(long position)
+    {
+        return (int) position;
+    }
+
+    public synchronized long getWritePosition() { return writePosition; }
+    public synchronized long getDurablePosition() { return durablePosition; }
+
+    /**
+     * Appends the event without waiting for it to reach disk.
+     */
+    public long append(ApprovalEvent event) throws IOException
+    {
+        byte[] payload = encode(event);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int recordSize = HEADER_BYTES + payload.length;
+
+        synchronized (this)
+        {
+            if (closed)
+            {
+                throw new IOException("Approval event log is closed");
+            }
+            // Leave room for the zero length that terminates the segment
+            if (recordSize + 4 > segmentSize)
+            {
+                throw new IOException("Approval event too large: " + recordSize + " bytes");
+            }
+            if (writeOffset + recordSize + 4 > buffer.capacity())
+            {
+                roll();
+            }
+
+            buffer.putInt(writeOffset, payload.length);
+            buffer.putInt(writeOffset + 4, (int) crc.getValue());
+            buffer.put(writeOffset + HEADER_BYTES, payload);
+            writeOffset += recordSize;
+            writePosition = position(segmentId, writeOffset);
+            notifyAll();
+            return writePosition;
+        }
+    }
+
+    /**
+     * Appends the event and waits until it has been forced to disk.
+     */
+    public long appendDurable(ApprovalEvent event) throws IOException
+    {
+        long position = append(event);
+        awaitDurable(position);
+        return position;
+    }
+
+    public synchronized void awaitDurable(long position) throws IOException
+    {
+        while (durablePosition < position)
+        {
+            if (closed)
+            {
+                throw new IOException("Approval event log closed before position " + position + " was flushed");
+            }
+            try
+            {
+                wait();
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for approval event log flush", e);
+            }
+        }
+    }
+
+    /**
+     * Visits every durable event after fromPosition (0 for the start of the log).
+     * Returns the position just past the last event visited, or fromPosition if none.
+     */
+    public long forEach(long fromPosition, EventVisitor visitor) throws IOException
+    {
+        return forEach(fromPosition, getDurablePosition(), visitor);
+    }
+
+    public long forEach(long fromPosition, long toPosition, EventVisitor visitor) throws IOException
+    {
+        return forEach(fromPosition, toPosition, Integer.MAX_VALUE, visitor);
+    }
+
+    // Stops after maxEvents; the returned position is where to continue
+    public long forEach(long fromPosition, long toPosition, int maxEvents, EventVisitor visitor) throws IOException
+    {
+        long last = fromPosition;
+        int visited = 0;
+        segmentsLock.readLock().lock();
+        try
+        {
+            for (int id : segmentIds())
+            {
+                if (id < segmentOf(fromPosition) || id > segmentOf(toPosition))
+                {
+                    continue;
+                }
+                if (visited == maxEvents)
+                {
+                    break;
+                }
+                int start = id == segmentOf(fromPosition) ? offsetOf(fromPosition) : 0;
+                int end = id == segmentOf(toPosition) ? offsetOf(toPosition) : Integer.MAX_VALUE;
+
+                try (FileChannel reader = FileChannel.open(segmentPath(id), StandardOpenOption.READ))
+                {
+                    MappedByteBuffer segment = reader.map(FileChannel.MapMode.READ_ONLY, 0, reader.size());
+                    int offset = start;
+                    while (offset < end && visited < maxEvents)
+                    {
+                        int length = validRecordLength(segment, offset);
+                        if (length < 0)
+                        {
+                            break;
+                        }
+                        ApprovalEvent event = decode(segment, offset + HEADER_BYTES, length);
+                        offset += HEADER_BYTES + length;
+                        last = position(id, offset);
+                        visitor.visit(last, event);
+                        visited++;
+                    }
+                }
+            }
+        } finally
+        {
+            segmentsLock.readLock().unlock();
+        }
+        return last;
+    }
+
+    /**
+     * Deletes the sealed segments that lie entirely before position, for logs whose
+     * events are worthless once consumed (the write-behind journal). Only lists
+     * the directory; returns the number of segments deleted.
+     */
+    public int deleteSegmentsBefore(long position) throws IOException
+    {
+        synchronized (compactionLock)
+        {
+            int active;
+            synchronized (this)
+            {
+                active = segmentId;
+            }
+            int limit = Math.min(active, segmentOf(position));
+
+            int deleted = 0;
+            segmentsLock.writeLock().lock();
+            try
+            {
+                for (int id : segmentIds())
+                {
+                    if (id < limit)
+                    {
+                        Files.delete(segmentPath(id));
+                        deleted++;
+                    }
+                }
+            } finally
+            {
+                segmentsLock.writeLock().unlock();
+            }
+            return deleted;
+        }
+    }
+
+    /**
+     * Rewrites sealed segments that lie entirely before projectedPosition into one
+     * segment. An event is dropped only if a later event for the same expense
+     * exists and it is older than retainHistoryMillis, so the latest decision for
+     * every expense is always kept. Returns the number of events dropped.
+     *
+     * A rewrite reads and writes everything it covers, so it only runs once the
+     * segments sealed since the last rewrite hold at least as many bytes as its
+     * result; otherwise this returns 0 without reading anything. The result at
+     * least doubles from one rewrite to the next, so each surviving event is
+     * rewritten about log2(compacted size / segment size) times in all, rather than
+     * once per sealed segment, and superseded events stay on disk until the next
+     * rewrite.
+     */
+    public int compact(long projectedPosition, long retainHistoryMillis) throws IOException
+    {
+        synchronized (compactionLock)
+        {
+            int active;
+            synchronized (this)
+            {
+                active = segmentId;
+            }
+            int limit = Math.min(active, segmentOf(projectedPosition));
+
+            List<Integer> candidates = new ArrayList<>();
+            for (int id : segmentIds())
+            {
+                if (id < limit)
+                {
+                    candidates.add(id);
+                }
+            }
+            if (candidates.isEmpty())
+            {
+                return 0;
+            }
+            long sealedSince = 0;
+            for (int i = 1; i < candidates.size(); i++)
+            {
+                sealedSince += Files.size(segmentPath(candidates.get(i)));
+            }
+            if (candidates.size() > 1 && sealedSince < Files.size(segmentPath(candidates.get(0))))
+            {
+                return 0;
+            }
+
+            int lastCandidate = candidates.get(candidates.size() - 1);
+            List<ApprovalEvent> events = new ArrayList<>();
+            forEach(position(candidates.get(0), 0), position(lastCandidate, Integer.MAX_VALUE),
+                    (position, event) -> events.add(event));
+
+            Map<Integer, Integer> latest = new HashMap<>();
+            for (int i = 0; i < events.size(); i++)
+            {
+                latest.put(events.get(i).getExpenseId(), i);
+            }
+
+            long cutoff = System.currentTimeMillis() - retainHistoryMillis;
+            List<byte[]> survivors = new ArrayList<>();
+            int size = 4;
+            for (int i = 0; i < events.size(); i++)
+            {
+                ApprovalEvent event = events.get(i);
+                if (latest.get(event.getExpenseId()) == i || event.getTimestamp() >= cutoff)
+                {
+                    byte[] payload = encode(event);
+                    survivors.add(payload);
+                    size += HEADER_BYTES + payload.length;
+                }
+            }
+            int dropped = events.size() - survivors.size();
+            if (dropped == 0 && candidates.size() == 1)
+            {
+                return 0;
+            }
+
+            ByteBuffer out = ByteBuffer.allocate(size);
+            for (byte[] payload : survivors)
+            {
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                out.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            }
+            out.putInt(0).flip();
+
+            Path target = segmentPath(lastCandidate);
+            Path temp = target.resolveSibling(target.getFileName() + COMPACT_SUFFIX);
+            try (FileChannel writer = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+            {
+                while (out.hasRemaining())
+                {
+                    writer.write(out);
+                }
+                writer.force(true);
+            }
+
+            segmentsLock.writeLock().lock();
+            try
+            {
+                // Replace the newest candidate first: if we crash before the older
+                // segments are deleted, replay sees their events twice, in order,
+                // which yields the same state.
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                for (int id : candidates)
+                {
+                    if (id != lastCandidate)
+                    {
+                        Files.delete(segmentPath(id));
+                    }
+                }
+            } finally
+            {
+                segmentsLock.writeLock().unlock();
+            }
+            return dropped;
+        }
+    }
+
+    private void flushLoop()
+    {
+        while (true)
+        {
+            synchronized (this)
+            {
+                while (!closed && durablePosition == writePosition)
+                {
+                    try
+                    {
+                        wait();
+                    } catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+                if (closed)
+                {
+                    return;
+                }
+            }
+
+            try
+            {
+                // Let concurrent appenders join this group before forcing
+                Thread.sleep(flushIntervalMillis);
+            } catch (InterruptedException e)
+            {
+                return;
+            }
+            flush();
+        }
+    }
+
+    private synchronized void flush()
+    {
+        if (writeOffset > dirtyFrom)
+        {
+            buffer.force(dirtyFrom, writeOffset - dirtyFrom);
+            dirtyFrom = writeOffset;
+        }
+        durablePosition = writePosition;
+        notifyAll();
+    }
+
+    // Caller holds the monitor
+    private void roll() throws IOException
+    {
+        buffer.force();
+        channel.close();
+        durablePosition = writePosition;
+        openSegment(segmentId + 1);
+        writeOffset = 0;
+        dirtyFrom = 0;
+        writePosition = position(segmentId, 0);
+        notifyAll();
+    }
+
+    private void openSegment(int id) throws IOException
+    {
+        Path path = segmentPath(id);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentSize);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segmentId = id;
+    }
+
+    // Finds the end of the last intact record in the active segment and clears
+    // anything after it, so a torn write can't be mistaken for data later.
+    private void recoverWriteOffset()
+    {
+        int offset = 0;
+        int length;
+        while ((length = validRecordLength(buffer, offset)) >= 0)
+        {
+            offset += HEADER_BYTES + length;
+        }
+
+        boolean dirtyTail = false;
+        for (int i = offset; i < buffer.capacity(); i++)
+        {
+            if (buffer.get(i) != 0)
+            {
+                dirtyTail = true;
+                break;
+            }
+        }
+        if (dirtyTail)
+        {
+            for (int i = offset; i < buffer.capacity(); i++)
+            {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+
+        writeOffset = offset;
+        dirtyFrom = offset;
+        writePosition = position(segmentId, offset);
+    }
+
+    // Returns the payload length of an intact record at offset, or -1
+    private static int validRecordLength(ByteBuffer segment, int offset)
+    {
+        if (offset + HEADER_BYTES > segment.capacity())
+        {
+            return -1;
+        }
+        int length = segment.getInt(offset);
+        if (length <= 0 || offset + HEADER_BYTES + length > segment.capacity())
+        {
+            return -1;
+        }
+        ByteBuffer payload = segment.duplicate();
+        payload.limit(offset + HEADER_BYTES + length).position(offset + HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == segment.getInt(offset + 4) ? length : -1;
+    }
+
+    private static byte[] encode(ApprovalEvent event)
+    {
+        byte[] status = bytes(event.getStatus());
+        byte[] comment = bytes(event.getComment());
+        byte[] reviewDate = bytes(event.getReviewDate());
+        ByteBuffer out = ByteBuffer.allocate(8 + 4 + 4 + 12 + status.length + comment.length + reviewDate.length);
+        out.putLong(event.getTimestamp());
+        out.putInt(event.getExpenseId());
+        out.putInt(event.getReviewerId());
+        putString(out, event.getStatus(), status);
+        putString(out, event.getComment(), comment);
+        putString(out, event.getReviewDate(), reviewDate);
+        return out.array();
+    }
+
+    private static ApprovalEvent decode(ByteBuffer segment, int offset, int length)
+    {
+        byte[] payload = new byte[length];
+        segment.get(offset, payload);
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        long timestamp = in.getLong();
+        int expenseId = in.getInt();
+        int reviewerId = in.getInt();
+        String status = getString(in);
+        String comment = getString(in);
+        String reviewDate = getString(in);
+        return new ApprovalEvent(expenseId, status, reviewerId, comment, reviewDate, timestamp);
+    }
+
+    private static byte[] bytes(String value)
+    {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Length -1 encodes null
+    private static void putString(ByteBuffer out, String value, byte[] bytes)
+    {
+        out.putInt(value == null ? -1 : bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in)
+    {
+        int length = in.getInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Path segmentPath(int id)
+    {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private List<Integer> segmentIds() throws IOException
+    {
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory))
+        {
+            for (Path path : (Iterable<Path>) files::iterator)
+            {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                {
+                    ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return;
+            }
+            flush();
+            closed = true;
+            notifyAll();
+        }
+        flusher.interrupt();
+        synchronized (this)
+        {
+            channel.close();
+        }
+    }
+}
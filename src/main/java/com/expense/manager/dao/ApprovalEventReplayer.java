@@ -0,0 +1,28 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.ApprovalEvent;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rebuilds approval state from the event log: the last event for an expense is
+ * its current decision.
+ */
+public class ApprovalEventReplayer
+{
+    private final ApprovalEventLog log;
+
+    public ApprovalEventReplayer(ApprovalEventLog log)
+    {
+        this.log = log;
+    }
+
+    public Map<Integer, ApprovalEvent> replay() throws IOException
+    {
+        Map<Integer, ApprovalEvent> state = new HashMap<>();
+        log.forEach(0, (position, event) -> state.put(event.getExpenseId(), event));
+        return state;
+    }
+}
@@ -0,0 +1,163 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.Approval;
+import com.expense.manager.model.ApprovalEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Copies durable approval events into the approvals table. Each pass reads the
+ * events after the stored checkpoint in batches of at most MAX_BATCH_SIZE events,
+ * keeps the latest one per expense and writes each batch in one transaction; the
+ * checkpoint advances past a batch once every event in it is either committed or,
+ * if it can never apply (no approval row, a constraint violation), in the
+ * dead-letter file next to the checkpoint. A crash or transient database error
+ * replays the batch rather than losing it. Whenever the checkpoint moves into a
+ * new segment, the segments behind it are offered for compaction (see
+ * ApprovalEventLog.compact).
+ */
+public class ApprovalProjector implements AutoCloseable
+{
+    // Events per transaction, so a long backlog neither holds locks nor builds undo for minutes
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final ApprovalEventLog log;
+    private final ApprovalBatchWriter writer;
+    private final Path checkpointFile;
+    private final long retainHistoryMillis;
+    private final ScheduledExecutorService scheduler;
+    private long checkpoint;
+    private int compactedBelowSegment;
+    private volatile Consumer<List<Approval>> commitListener = approvals -> { };
+
+    public ApprovalProjector(ApprovalEventLog log, ApprovalDAO target, Path checkpointFile,
+                             long intervalMillis, long retainHistoryMillis) throws IOException
+    {
+        this.log = log;
+        this.writer = new ApprovalBatchWriter(target, ApprovalBatchWriter.deadLetterFileFor(checkpointFile));
+        this.checkpointFile = checkpointFile;
+        this.retainHistoryMillis = retainHistoryMillis;
+        this.checkpoint = Files.exists(checkpointFile) ? ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong() : 0;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "approval-projector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::projectQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized long getCheckpoint()
+    {
+        return checkpoint;
+    }
+
+    // Called from the projecting thread with each batch once it is committed
+    public void setCommitListener(Consumer<List<Approval>> commitListener)
+    {
+        this.commitListener = commitListener;
+    }
+
+    // Runs a pass soon instead of waiting for the next interval
+    public void requestSync()
+    {
+        if (!scheduler.isShutdown())
+        {
+            scheduler.execute(this::projectQuietly);
+        }
+    }
+
+    /**
+     * Projects everything durable since the checkpoint. Returns the number of
+     * approvals written.
+     */
+    public synchronized int project() throws Exception
+    {
+        long durable = log.getDurablePosition();
+        int written = 0;
+        while (true)
+        {
+            Map<Integer, ApprovalEvent> latest = new LinkedHashMap<>();
+            long end = log.forEach(checkpoint, durable, MAX_BATCH_SIZE,
+                    (position, event) -> latest.put(event.getExpenseId(), event));
+            if (latest.isEmpty())
+            {
+                break;
+            }
+
+            List<Approval> batch = new ArrayList<>(latest.size());
+            for (ApprovalEvent event : latest.values())
+            {
+                batch.add(event.toApproval(0));
+            }
+            // Throws on transient errors, leaving the checkpoint after the last committed batch
+            writer.write(batch);
+            writeCheckpoint(end);
+            commitListener.accept(batch);
+            written += batch.size();
+        }
+
+        if (ApprovalEventLog.segmentOf(checkpoint) > compactedBelowSegment)
+        {
+            log.compact(checkpoint, retainHistoryMillis);
+            compactedBelowSegment = ApprovalEventLog.segmentOf(checkpoint);
+        }
+        return written;
+    }
+
+    private void projectQuietly()
+    {
+        try
+        {
+            project();
+        } catch (Exception e)
+        {
+            System.err.println("Approval projection failed, will retry: " + e.getMessage());
+        }
+    }
+
+    private void writeCheckpoint(long position) throws IOException
+    {
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(temp, ByteBuffer.allocate(8).putLong(position).array());
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = position;
+    }
+
+    // Runs a last pass; anything it cannot write stays in the log for the next start
+    @Override
+    public void close() throws IOException
+    {
+        scheduler.shutdown();
+        try
+        {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        try
+        {
+            project();
+        } catch (IOException e)
+        {
+            throw e;
+        } catch (Exception e)
+        {
+            throw new IOException("Final approval projection failed: " + e.getMessage(), e);
+        }
+    }
+}
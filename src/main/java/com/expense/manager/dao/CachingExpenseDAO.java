@@ -0,0 +1,124 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.cache.ExpenseCache;
+import com.expense.manager.model.Expense;
+import com.expense.manager.util.ExpenseIdMarks;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * ExpenseDAO that answers list queries from an ExpenseCache. Before each query the
+ * cache is caught up with two cheap delta queries (at most once per refresh
+ * interval): expenses the cache does not have among the ids above its per-shard
+ * high-water marks less a trailing window (see ExpenseIdMarks; the marks are
+ * kept in the cache and its snapshot), and expenses
+ * reviewed since the day before the last refresh (the extra day absorbs clock and
+ * time zone differences between reviewers). Rows changed other than through a
+ * review are not noticed.
+ */
+public class CachingExpenseDAO implements ExpenseDAO
+{
+    private final ExpenseDAO delegate;
+    private final ExpenseCache cache;
+    private final long refreshIntervalMillis;
+    private long lastRefreshAt;
+
+    public CachingExpenseDAO(ExpenseDAO delegate, ExpenseCache cache, long refreshIntervalMillis)
+    {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    public synchronized void refresh() throws Exception
+    {
+        long now = System.currentTimeMillis();
+        if (lastRefreshAt != 0 && now - lastRefreshAt < refreshIntervalMillis)
+        {
+            return;
+        }
+
+        String today = LocalDate.now().toString();
+        // Advance a copy, so the cache never holds marks ahead of its rows
+        ExpenseIdMarks marks = cache.getIdMarks().copy();
+        List<Expense> added = delegate.getNewExpenses(marks, id -> cache.get(id) != null);
+        cache.apply(added, marks);
+        if (cache.getLastRefreshDate() != null)
+        {
+            String since = LocalDate.parse(cache.getLastRefreshDate()).minusDays(1).toString();
+            cache.apply(delegate.getExpensesReviewedSince(since));
+        }
+        cache.setLastRefreshDate(today);
+        lastRefreshAt = now;
+    }
+
+    @Override
+    public List<Expense> getPendingExpenses() throws Exception
+    {
+        refresh();
+        return cache.getPendingExpenses();
+    }
+
+    @Override
+    public Expense getExpenseById(int id) throws Exception
+    {
+        // Detail fetches back approval decisions, so always read them fresh
+        Expense expense = delegate.getExpenseById(id);
+        if (expense != null)
+        {
+            cache.replace(expense);
+        }
+        return expense;
+    }
+
+    @Override
+    public List<Expense> getExpensesByEmployee(String username) throws Exception
+    {
+        refresh();
+        return cache.getExpensesByEmployee(username);
+    }
+
+    @Override
+    public Map<String, List<Expense>> getExpensesByEmployees(Collection<String> usernames) throws Exception
+    {
+        refresh();
+        return cache.getExpensesByEmployees(usernames);
+    }
+
+    @Override
+    public List<Expense> getExpensesByDateRange(String startDate, String endDate) throws Exception
+    {
+        refresh();
+        return cache.getExpensesByDateRange(startDate, endDate);
+    }
+
+    @Override
+    public List<Expense> getExpensesByStatus(String status) throws Exception
+    {
+        refresh();
+        return cache.getExpensesByStatus(status);
+    }
+
+    @Override
+    public List<Expense> getNewExpenses(ExpenseIdMarks marks, IntPredicate known) throws Exception
+    {
+        return delegate.getNewExpenses(marks, known);
+    }
+
+    @Override
+    public List<Expense> getExpensesReviewedSince(String reviewDate) throws Exception
+    {
+        return delegate.getExpensesReviewedSince(reviewDate);
+    }
+
+    @Override
+    public int insertExpenses(String feed, long records, List<Expense> expenses) throws Exception
+    {
+        // The next refresh picks the new rows up
+        return delegate.insertExpenses(feed, records, expenses);
+    }
+}
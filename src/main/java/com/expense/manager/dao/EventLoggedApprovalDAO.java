@@ -0,0 +1,74 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.Approval;
+import com.expense.manager.model.ApprovalEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ApprovalDAO that records every decision in the approval event log instead of
+ * updating the approvals row in place. A decision is accepted once the log has
+ * forced it to disk; the projector then copies it into the approvals table in
+ * the background, so queries joining approvals may briefly show the old status.
+ */
+public class EventLoggedApprovalDAO implements ApprovalDAO
+{
+    private final ApprovalEventLog log;
+    private final ApprovalDAO delegate;
+    private final ApprovalProjector projector;
+    private final Map<Integer, ApprovalEvent> state;
+
+    public EventLoggedApprovalDAO(ApprovalEventLog log, ApprovalDAO delegate, ApprovalProjector projector) throws Exception
+    {
+        this.log = log;
+        this.delegate = delegate;
+        this.projector = projector;
+        this.state = new ConcurrentHashMap<>(new ApprovalEventReplayer(log).replay());
+    }
+
+    @Override
+    public Approval getApprovalByExpenseId(int expenseId) throws Exception
+    {
+        Approval approval = delegate.getApprovalByExpenseId(expenseId);
+        ApprovalEvent latest = state.get(expenseId);
+        if (approval != null && latest != null)
+        {
+            // The table may not have caught up with the log yet
+            approval.setStatus(latest.getStatus());
+            approval.setReviewerId(latest.getReviewerId());
+            approval.setComment(latest.getComment());
+            approval.setReviewDate(latest.getReviewDate());
+        }
+        return approval;
+    }
+
+    @Override
+    public void updateApproval(int expenseId, String status, int reviewerId, String comment, String reviewDate) throws Exception
+    {
+        ApprovalEvent event = new ApprovalEvent(expenseId, status, reviewerId, comment, reviewDate, System.currentTimeMillis());
+        log.appendDurable(event);
+        state.put(expenseId, event);
+        projector.requestSync();
+    }
+
+    @Override
+    public List<Approval> updateApprovals(List<Approval> approvals) throws Exception
+    {
+        // Rows are matched when the projector copies the events, not here
+        long now = System.currentTimeMillis();
+        long last = 0;
+        for (Approval approval : approvals)
+        {
+            ApprovalEvent event = new ApprovalEvent(approval.getExpenseId(), approval.getStatus(),
+                    approval.getReviewerId() == null ? 0 : approval.getReviewerId(),
+                    approval.getComment(), approval.getReviewDate(), now);
+            last = log.append(event);
+            state.put(event.getExpenseId(), event);
+        }
+        log.awaitDurable(last);
+        projector.requestSync();
+        return List.of();
+    }
+}
@@ -1,14 +1,28 @@
 package com.expense.manager.dao;
 
 import com.expense.manager.model.Expense;
+import com.expense.manager.util.ExpenseIdMarks;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
 
 public interface ExpenseDAO
 {
     List<Expense> getPendingExpenses() throws Exception;
     Expense getExpenseById(int id) throws Exception;
     List<Expense> getExpensesByEmployee(String username) throws Exception;
+    // One list per requested username (empty if none), each ordered by date descending
+    Map<String, List<Expense>> getExpensesByEmployees(Collection<String> usernames) throws Exception;
     List<Expense> getExpensesByDateRange(String startDate, String endDate) throws Exception;
     List<Expense> getExpensesByStatus(String status) throws Exception;
+    // Delta queries used to catch an in-memory copy up with the database
+    // Expenses the caller does not know yet, from a scan of the ids above the marks' windows; advances the marks
+    List<Expense> getNewExpenses(ExpenseIdMarks marks, IntPredicate known) throws Exception;
+    List<Expense> getExpensesReviewedSince(String reviewDate) throws Exception;
+    // Inserts the expenses, each with a pending approval, and records that the feed is imported up to the given
+    // record, in one transaction; ids are assigned by the database. Returns 0 and inserts nothing if the feed's
+    // recorded progress already reaches that record, so a chunk committed before a crash is not inserted twice.
+    int insertExpenses(String feed, long records, List<Expense> expenses) throws Exception;
 }
@@ -1,21 +1,46 @@
 package com.expense.manager.dao;
 
 import com.expense.manager.model.Expense;
+import com.expense.manager.util.ConnectionProvider;
+import com.expense.manager.util.ExpenseIdMarks;
+import com.expense.manager.util.SingleConnectionProvider;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
 
 public class ExpenseDAOImplementation implements ExpenseDAO
 {
-    private Connection conn;
+    // Upper bound on IN-list size per query for team reports
+    private static final int MAX_USERNAMES_PER_QUERY = 500;
+    // Rows per multi-row INSERT statement in bulk imports
+    private static final int MAX_ROWS_PER_INSERT = 1000;
+    // Upper bound on IN-list size when fetching new expenses by id
+    private static final int MAX_IDS_PER_QUERY = 1000;
+    // Beyond this many unknown ids one range scan is cheaper than IN lists
+    private static final int MAX_IDS_FOR_LOOKUP = 20_000;
+
+    private ConnectionProvider connections;
 
     public ExpenseDAOImplementation(Connection conn)
     {
-        this.conn = conn;
+        this(new SingleConnectionProvider(conn));
+    }
+
+    // Report queries go to getReadConnection(); the pending queue, detail lookups
+    // and delta queries must see the latest decisions, so they read from the primary.
+    public ExpenseDAOImplementation(ConnectionProvider connections)
+    {
+        this.connections = connections;
     }
 
     @Override
@@ -28,7 +53,7 @@ public class ExpenseDAOImplementation implements ExpenseDAO
                 "WHERE a.status = 'pending' " +
                 "ORDER BY e.date DESC";
 
-        try (Statement stmt = conn.createStatement();
+        try (Statement stmt = connections.getPrimaryReadConnection().createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
             while (rs.next()) {
@@ -55,7 +80,7 @@ public class ExpenseDAOImplementation implements ExpenseDAO
                 "JOIN approvals a ON e.id = a.expense_id " +
                 "WHERE e.id = ?";
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = connections.getPrimaryReadConnection().prepareStatement(query)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
 
@@ -85,7 +110,7 @@ public class ExpenseDAOImplementation implements ExpenseDAO
                 "WHERE u.username = ? " +
                 "ORDER BY e.date DESC";
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = connections.getReadConnection().prepareStatement(query)) {
             stmt.setString(1, username);
             ResultSet rs = stmt.executeQuery();
 
@@ -105,6 +130,75 @@ public class ExpenseDAOImplementation implements ExpenseDAO
         return expenses;
     }
 
+    @Override
+    public Map<String, List<Expense>> getExpensesByEmployees(Collection<String> usernames) throws Exception {
+        Map<String, List<Expense>> expensesByEmployee = new LinkedHashMap<>();
+        for (String username : usernames) {
+            expensesByEmployee.put(username, new ArrayList<>());
+        }
+        List<String> remaining = new ArrayList<>(expensesByEmployee.keySet());
+        Connection conn = connections.getReadConnection();
+        String select = isMySql(conn) ? "SELECT STRAIGHT_JOIN " : "SELECT ";
+
+        for (int from = 0; from < remaining.size(); from += MAX_USERNAMES_PER_QUERY) {
+            List<String> chunk = remaining.subList(from, Math.min(from + MAX_USERNAMES_PER_QUERY, remaining.size()));
+
+            // MySQL picks its own join order whatever the FROM clause says; STRAIGHT_JOIN
+            // makes it resolve the usernames through their unique index first and then
+            // probe expenses by user_id (indexed, as InnoDB does for a foreign key) and
+            // approvals by expense_id, instead of scanning expenses. Other databases (H2 in
+            // the tests) don't know the keyword and are left to plan the join themselves.
+            String query = select + "e.id, e.user_id, e.amount, e.description, e.date, u.username, a.status " +
+                    "FROM users u " +
+                    "JOIN expenses e ON e.user_id = u.id " +
+                    "JOIN approvals a ON e.id = a.expense_id " +
+                    "WHERE u.username IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") " +
+                    "ORDER BY u.username, e.date DESC";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 1, chunk.get(i));
+                }
+                ResultSet rs = stmt.executeQuery();
+
+                while (rs.next()) {
+                    Expense expense = new Expense(
+                            rs.getInt("id"),
+                            rs.getInt("user_id"),
+                            rs.getDouble("amount"),
+                            rs.getString("description"),
+                            rs.getString("date")
+                    );
+                    String username = rs.getString("username");
+                    expense.setEmployeeName(username);
+                    expense.setStatus(rs.getString("status"));
+                    // The database may match usernames case-insensitively
+                    List<Expense> target = expensesByEmployee.get(username);
+                    if (target == null) {
+                        target = expensesByEmployee.computeIfAbsent(matchUsername(chunk, username), k -> new ArrayList<>());
+                    }
+                    target.add(expense);
+                }
+            }
+        }
+        return expensesByEmployee;
+    }
+
+    // The driver answers from the handshake, without a round trip
+    private static boolean isMySql(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        return product.contains("MySQL") || product.contains("MariaDB");
+    }
+
+    private static String matchUsername(List<String> requested, String username) {
+        for (String candidate : requested) {
+            if (candidate.equalsIgnoreCase(username)) {
+                return candidate;
+            }
+        }
+        return username;
+    }
+
     @Override
     public List<Expense> getExpensesByDateRange(String startDate, String endDate) throws Exception {
         List<Expense> expenses = new ArrayList<>();
@@ -115,7 +209,7 @@ public class ExpenseDAOImplementation implements ExpenseDAO
                 "WHERE e.date BETWEEN ? AND ? " +
                 "ORDER BY e.date DESC";
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = connections.getReadConnection().prepareStatement(query)) {
             stmt.setString(1, startDate);
             stmt.setString(2, endDate);
             ResultSet rs = stmt.executeQuery();
@@ -146,7 +240,7 @@ public class ExpenseDAOImplementation implements ExpenseDAO
                 "WHERE a.status = ? " +
                 "ORDER BY e.date DESC";
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = connections.getReadConnection().prepareStatement(query)) {
             stmt.setString(1, status);
             ResultSet rs = stmt.executeQuery();
 
@@ -165,4 +259,219 @@ public class ExpenseDAOImplementation implements ExpenseDAO
         }
         return expenses;
     }
-}
\ No newline at end of file
+
+    private List<Expense> getExpensesAfterId(int lastId) throws Exception {
+        List<Expense> expenses = new ArrayList<>();
+        String query = "SELECT e.id, e.user_id, e.amount, e.description, e.date, u.username, a.status " +
+                "FROM expenses e " +
+                "JOIN users u ON e.user_id = u.id " +
+                "JOIN approvals a ON e.id = a.expense_id " +
+                "WHERE e.id > ? " +
+                "ORDER BY e.id";
+
+        try (PreparedStatement stmt = connections.getPrimaryReadConnection().prepareStatement(query)) {
+            stmt.setInt(1, lastId);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Expense expense = new Expense(
+                        rs.getInt("id"),
+                        rs.getInt("user_id"),
+                        rs.getDouble("amount"),
+                        rs.getString("description"),
+                        rs.getString("date")
+                );
+                expense.setEmployeeName(rs.getString("username"));
+                expense.setStatus(rs.getString("status"));
+                expenses.add(expense);
+            }
+        }
+        return expenses;
+    }
+
+    @Override
+    public List<Expense> getNewExpenses(ExpenseIdMarks marks, IntPredicate known) throws Exception {
+        // Ids first: the window is mostly rows the caller has, and an id-only scan of the primary key is cheap
+        List<Integer> unknown = new ArrayList<>();
+        int maxId = 0;
+        String query = "SELECT id FROM expenses WHERE id > ? ORDER BY id";
+        try (PreparedStatement stmt = connections.getPrimaryReadConnection().prepareStatement(query)) {
+            stmt.setInt(1, marks.getScanStart());
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                maxId = rs.getInt(1);
+                if (!known.test(maxId)) {
+                    unknown.add(maxId);
+                }
+            }
+        }
+
+        List<Expense> expenses;
+        if (unknown.isEmpty()) {
+            expenses = new ArrayList<>();
+        } else if (unknown.size() > MAX_IDS_FOR_LOOKUP) {
+            // Mostly new rows, as on a first fill
+            expenses = getExpensesAfterId(unknown.get(0) - 1);
+            expenses.removeIf(expense -> known.test(expense.getId()));
+        } else {
+            expenses = getExpensesByIds(unknown);
+        }
+        marks.advance(maxId);
+        return expenses;
+    }
+
+    private List<Expense> getExpensesByIds(List<Integer> ids) throws Exception {
+        List<Expense> expenses = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+            String query = "SELECT e.id, e.user_id, e.amount, e.description, e.date, u.username, a.status " +
+                    "FROM expenses e " +
+                    "JOIN users u ON e.user_id = u.id " +
+                    "JOIN approvals a ON e.id = a.expense_id " +
+                    "WHERE e.id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") " +
+                    "ORDER BY e.id";
+
+            try (PreparedStatement stmt = connections.getPrimaryReadConnection().prepareStatement(query)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                ResultSet rs = stmt.executeQuery();
+
+                while (rs.next()) {
+                    Expense expense = new Expense(
+                            rs.getInt("id"),
+                            rs.getInt("user_id"),
+                            rs.getDouble("amount"),
+                            rs.getString("description"),
+                            rs.getString("date")
+                    );
+                    expense.setEmployeeName(rs.getString("username"));
+                    expense.setStatus(rs.getString("status"));
+                    expenses.add(expense);
+                }
+            }
+        }
+        return expenses;
+    }
+
+    @Override
+    public List<Expense> getExpensesReviewedSince(String reviewDate) throws Exception {
+        List<Expense> expenses = new ArrayList<>();
+        String query = "SELECT e.id, e.user_id, e.amount, e.description, e.date, u.username, a.status " +
+                "FROM expenses e " +
+                "JOIN users u ON e.user_id = u.id " +
+                "JOIN approvals a ON e.id = a.expense_id " +
+                "WHERE a.review_date >= ? " +
+                "ORDER BY e.id";
+
+        try (PreparedStatement stmt = connections.getPrimaryReadConnection().prepareStatement(query)) {
+            stmt.setString(1, reviewDate);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Expense expense = new Expense(
+                        rs.getInt("id"),
+                        rs.getInt("user_id"),
+                        rs.getDouble("amount"),
+                        rs.getString("description"),
+                        rs.getString("date")
+                );
+                expense.setEmployeeName(rs.getString("username"));
+                expense.setStatus(rs.getString("status"));
+                expenses.add(expense);
+            }
+        }
+        return expenses;
+    }
+
+    @Override
+    public int insertExpenses(String feed, long records, List<Expense> expenses) throws Exception {
+        if (expenses.isEmpty()) {
+            return 0;
+        }
+
+        Connection conn = connections.getWriteConnection();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            // Locks the feed's progress row, so the check and the insert are one step
+            Long imported = getImportProgress(conn, feed);
+            if (imported != null && imported >= records) {
+                conn.rollback();
+                return 0;
+            }
+            for (int from = 0; from < expenses.size(); from += MAX_ROWS_PER_INSERT) {
+                List<Expense> chunk = expenses.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, expenses.size()));
+                insertPendingApprovals(conn, insertExpenseRows(conn, chunk));
+            }
+            setImportProgress(conn, feed, records, imported != null);
+            conn.commit();
+            return expenses.size();
+        } catch (Exception e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // One multi-row INSERT per chunk; returns the generated ids in row order
+    private static List<Integer> insertExpenseRows(Connection conn, List<Expense> chunk) throws SQLException {
+        String query = "INSERT INTO expenses (user_id, amount, description, date) VALUES " +
+                String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, ?)"));
+
+        List<Integer> ids = new ArrayList<>(chunk.size());
+        try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (Expense expense : chunk) {
+                stmt.setInt(index++, expense.getUserId());
+                stmt.setDouble(index++, expense.getAmount());
+                stmt.setString(index++, expense.getDescription());
+                stmt.setString(index++, expense.getDate());
+            }
+            stmt.executeUpdate();
+
+            ResultSet keys = stmt.getGeneratedKeys();
+            while (keys.next()) {
+                ids.add(keys.getInt(1));
+            }
+        }
+        if (ids.size() != chunk.size()) {
+            throw new SQLException("Expected " + chunk.size() + " generated expense ids, got " + ids.size());
+        }
+        return ids;
+    }
+
+    // import_progress (feed VARCHAR(255) PRIMARY KEY, records BIGINT NOT NULL)
+    private static Long getImportProgress(Connection conn, String feed) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT records FROM import_progress WHERE feed = ? FOR UPDATE")) {
+            stmt.setString(1, feed);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong("records") : null;
+        }
+    }
+
+    private static void setImportProgress(Connection conn, String feed, long records, boolean exists) throws SQLException {
+        String query = exists
+                ? "UPDATE import_progress SET records = ? WHERE feed = ?"
+                : "INSERT INTO import_progress (records, feed) VALUES (?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setLong(1, records);
+            stmt.setString(2, feed);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void insertPendingApprovals(Connection conn, List<Integer> expenseIds) throws SQLException {
+        String query = "INSERT INTO approvals (expense_id, status) VALUES " +
+                String.join(", ", Collections.nCopies(expenseIds.size(), "(?, 'pending')"));
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < expenseIds.size(); i++) {
+                stmt.setInt(i + 1, expenseIds.get(i));
+            }
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.expense.manager.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Maps users and expenses to shards and runs per-shard calls in parallel.
+ *
+ * Expenses live on the shard of their user (userId mod N). Each shard is expected
+ * to be configured with auto_increment_increment = N and auto_increment_offset =
+ * shard index + 1, so an expense id also identifies its shard without a lookup.
+ * Rows that don't follow that layout (e.g. migrated history) are found by probing
+ * every shard once; the location is then remembered.
+ */
+public class ShardRouter implements AutoCloseable
+{
+    public interface ShardCall<D, R>
+    {
+        R apply(D shard) throws Exception;
+    }
+
+    private final int shardCount;
+    private final ExecutorService executor;
+    private final Map<Integer, Integer> expenseLocations = new ConcurrentHashMap<>();
+
+    public ShardRouter(int shardCount)
+    {
+        if (shardCount < 1)
+        {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shardCount = shardCount;
+        this.executor = Executors.newFixedThreadPool(shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getShardCount() { return shardCount; }
+
+    public int shardForUser(int userId)
+    {
+        return Math.floorMod(userId, shardCount);
+    }
+
+    // Relies on the shards' auto_increment_increment/offset layout; any other id is found by probing
+    public int shardForExpense(int expenseId)
+    {
+        Integer known = expenseLocations.get(expenseId);
+        return known != null ? known : Math.floorMod(expenseId - 1, shardCount);
+    }
+
+    public void rememberExpense(int expenseId, int shard)
+    {
+        if (shard != Math.floorMod(expenseId - 1, shardCount))
+        {
+            expenseLocations.put(expenseId, shard);
+        }
+    }
+
+    /**
+     * Runs the call on every shard in parallel and returns the results in shard order.
+     */
+    public <D, R> List<R> scatter(List<D> shards, ShardCall<D, R> call) throws Exception
+    {
+        List<Future<R>> futures = new ArrayList<>(shards.size());
+        for (D shard : shards)
+        {
+            futures.add(executor.submit(() -> call.apply(shard)));
+        }
+
+        List<R> results = new ArrayList<>(shards.size());
+        Exception failure = null;
+        for (Future<R> future : futures)
+        {
+            try
+            {
+                results.add(future.get());
+            } catch (ExecutionException e)
+            {
+                results.add(null);
+                if (failure == null)
+                {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+        return results;
+    }
+
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,118 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.Approval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ApprovalDAO over approvals stored on the same shard as their expense.
+ */
+public class ShardedApprovalDAO implements ApprovalDAO
+{
+    private final List<ApprovalDAO> shards;
+    private final ShardRouter router;
+
+    public ShardedApprovalDAO(List<ApprovalDAO> shards, ShardRouter router)
+    {
+        this.shards = new ArrayList<>(shards);
+        this.router = router;
+    }
+
+    @Override
+    public Approval getApprovalByExpenseId(int expenseId) throws Exception
+    {
+        Approval approval = shards.get(router.shardForExpense(expenseId)).getApprovalByExpenseId(expenseId);
+        if (approval != null)
+        {
+            return approval;
+        }
+
+        int shard = probe(expenseId);
+        return shard < 0 ? null : shards.get(shard).getApprovalByExpenseId(expenseId);
+    }
+
+    @Override
+    public void updateApproval(int expenseId, String status, int reviewerId, String comment, String reviewDate) throws Exception
+    {
+        int home = router.shardForExpense(expenseId);
+        try
+        {
+            shards.get(home).updateApproval(expenseId, status, reviewerId, comment, reviewDate);
+        } catch (Exception e)
+        {
+            // Either the row lives elsewhere or the shard failed; only retry if it is found
+            int shard = probe(expenseId);
+            if (shard < 0 || shard == home)
+            {
+                throw e;
+            }
+            shards.get(shard).updateApproval(expenseId, status, reviewerId, comment, reviewDate);
+        }
+    }
+
+    @Override
+    public List<Approval> updateApprovals(List<Approval> approvals) throws Exception
+    {
+        List<List<Approval>> byShard = new ArrayList<>();
+        List<Integer> shardIndexes = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++)
+        {
+            byShard.add(new ArrayList<>());
+            shardIndexes.add(i);
+        }
+        for (Approval approval : approvals)
+        {
+            byShard.get(router.shardForExpense(approval.getExpenseId())).add(approval);
+        }
+
+        List<List<Approval>> unmatchedByShard = router.scatter(shardIndexes, i -> shards.get(i).updateApprovals(byShard.get(i)));
+
+        // Rows outside the id layout matched nothing on their home shard; find where they live
+        List<Approval> unmatched = new ArrayList<>();
+        List<List<Approval>> relocated = new ArrayList<>();
+        boolean anyRelocated = false;
+        for (int i = 0; i < shards.size(); i++)
+        {
+            relocated.add(new ArrayList<>());
+        }
+        for (int home = 0; home < shards.size(); home++)
+        {
+            for (Approval approval : unmatchedByShard.get(home))
+            {
+                int shard = probe(approval.getExpenseId());
+                if (shard < 0 || shard == home)
+                {
+                    unmatched.add(approval);
+                } else
+                {
+                    relocated.get(shard).add(approval);
+                    anyRelocated = true;
+                }
+            }
+        }
+
+        if (anyRelocated)
+        {
+            for (List<Approval> stillUnmatched : router.scatter(shardIndexes, i -> shards.get(i).updateApprovals(relocated.get(i))))
+            {
+                unmatched.addAll(stillUnmatched);
+            }
+        }
+        return unmatched;
+    }
+
+    private int probe(int expenseId) throws Exception
+    {
+        List<Approval> found = router.scatter(shards, shard -> shard.getApprovalByExpenseId(expenseId));
+        for (int i = 0; i < found.size(); i++)
+        {
+            if (found.get(i) != null)
+            {
+                router.rememberExpense(expenseId, i);
+                return i;
+            }
+        }
+        return -1;
+    }
+}
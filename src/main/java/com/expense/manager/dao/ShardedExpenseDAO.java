@@ -0,0 +1,200 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.Expense;
+import com.expense.manager.util.ExpenseIdMarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * ExpenseDAO over expenses sharded by user_id. Point lookups go to one shard;
+ * list queries are scattered to all shards in parallel and k-way merged so the
+ * result keeps the ORDER BY e.date DESC ordering of a single database.
+ */
+public class ShardedExpenseDAO implements ExpenseDAO
+{
+    // Dates are ISO strings, so lexical order is chronological order
+    static final Comparator<Expense> NEWEST_FIRST =
+            Comparator.comparing(Expense::getDate, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final List<ExpenseDAO> shards;
+    private final ShardRouter router;
+
+    public ShardedExpenseDAO(List<ExpenseDAO> shards, ShardRouter router)
+    {
+        this.shards = new ArrayList<>(shards);
+        this.router = router;
+    }
+
+    @Override
+    public List<Expense> getPendingExpenses() throws Exception
+    {
+        return merge(router.scatter(shards, ExpenseDAO::getPendingExpenses));
+    }
+
+    @Override
+    public Expense getExpenseById(int id) throws Exception
+    {
+        int home = router.shardForExpense(id);
+        Expense expense = shards.get(home).getExpenseById(id);
+        if (expense != null)
+        {
+            return expense;
+        }
+
+        List<Expense> found = router.scatter(shards, shard -> shard.getExpenseById(id));
+        for (int i = 0; i < found.size(); i++)
+        {
+            if (found.get(i) != null)
+            {
+                router.rememberExpense(id, i);
+                return found.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Expense> getExpensesByEmployee(String username) throws Exception
+    {
+        // Only the username is known here, so ask every shard; all but one return nothing
+        return merge(router.scatter(shards, shard -> shard.getExpensesByEmployee(username)));
+    }
+
+    @Override
+    public Map<String, List<Expense>> getExpensesByEmployees(Collection<String> usernames) throws Exception
+    {
+        List<Map<String, List<Expense>>> perShard = router.scatter(shards, shard -> shard.getExpensesByEmployees(usernames));
+
+        Map<String, List<Expense>> merged = new LinkedHashMap<>();
+        for (String username : usernames)
+        {
+            List<List<Expense>> lists = new ArrayList<>(perShard.size());
+            for (Map<String, List<Expense>> shardResult : perShard)
+            {
+                lists.add(shardResult.getOrDefault(username, List.of()));
+            }
+            merged.put(username, merge(lists));
+        }
+        return merged;
+    }
+
+    @Override
+    public List<Expense> getExpensesByDateRange(String startDate, String endDate) throws Exception
+    {
+        return merge(router.scatter(shards, shard -> shard.getExpensesByDateRange(startDate, endDate)));
+    }
+
+    @Override
+    public List<Expense> getExpensesByStatus(String status) throws Exception
+    {
+        return merge(router.scatter(shards, shard -> shard.getExpensesByStatus(status)));
+    }
+
+    @Override
+    public List<Expense> getNewExpenses(ExpenseIdMarks marks, IntPredicate known) throws Exception
+    {
+        // Each shard draws ids from its own sequence, so it keeps its own marks
+        List<Integer> shardIndexes = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++)
+        {
+            shardIndexes.add(i);
+        }
+        return concat(router.scatter(shardIndexes, i -> shards.get(i).getNewExpenses(marks.forShard(i), known)));
+    }
+
+    @Override
+    public List<Expense> getExpensesReviewedSince(String reviewDate) throws Exception
+    {
+        return concat(router.scatter(shards, shard -> shard.getExpensesReviewedSince(reviewDate)));
+    }
+
+    @Override
+    public int insertExpenses(String feed, long records, List<Expense> expenses) throws Exception
+    {
+        List<List<Expense>> perShard = new ArrayList<>(shards.size());
+        List<Integer> shardIndexes = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++)
+        {
+            perShard.add(new ArrayList<>());
+            shardIndexes.add(i);
+        }
+        for (Expense expense : expenses)
+        {
+            perShard.get(router.shardForUser(expense.getUserId())).add(expense);
+        }
+
+        // Each shard commits its own rows and progress; a failure on one shard does not undo the
+        // others, and a retry skips the shards that already committed
+        int inserted = 0;
+        for (int count : router.scatter(shardIndexes, i -> shards.get(i).insertExpenses(feed, records, perShard.get(i))))
+        {
+            inserted += count;
+        }
+        return inserted;
+    }
+
+    private static List<Expense> concat(List<List<Expense>> lists)
+    {
+        List<Expense> all = new ArrayList<>();
+        for (List<Expense> list : lists)
+        {
+            all.addAll(list);
+        }
+        return all;
+    }
+
+    /**
+     * Merges per-shard lists that are each sorted newest first into one sorted list.
+     */
+    static List<Expense> merge(List<List<Expense>> sortedLists)
+    {
+        int total = 0;
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                (a, b) -> NEWEST_FIRST.compare(a.current(), b.current()));
+        for (List<Expense> list : sortedLists)
+        {
+            total += list.size();
+            if (!list.isEmpty())
+            {
+                heads.add(new Cursor(list));
+            }
+        }
+
+        List<Expense> merged = new ArrayList<>(total);
+        while (!heads.isEmpty())
+        {
+            Cursor cursor = heads.poll();
+            merged.add(cursor.current());
+            if (cursor.advance())
+            {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static class Cursor
+    {
+        private final List<Expense> list;
+        private int position;
+
+        Cursor(List<Expense> list)
+        {
+            this.list = list;
+        }
+
+        Expense current() { return list.get(position); }
+
+        boolean advance()
+        {
+            return ++position < list.size();
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.expense.manager.dao;
 
 import com.expense.manager.model.User;
 
+import java.util.Map;
+
 public interface UserDAO
 {
     User authenticate(String username, String password) throws Exception;
     User getUserById(int id) throws Exception;
+    // Every user's id keyed by username, for validating bulk imports without a query per row
+    Map<String, Integer> getUserIdsByUsername() throws Exception;
 }
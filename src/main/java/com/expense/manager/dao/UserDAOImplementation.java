@@ -1,22 +1,28 @@
 package com.expense.manager.dao;
 
 import com.expense.manager.model.User;
+import com.expense.manager.util.ConnectionProvider;
+import com.expense.manager.util.SingleConnectionProvider;
 
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 public class UserDAOImplementation implements UserDAO {
-    private Connection conn;
+    private ConnectionProvider connections;
 
     public UserDAOImplementation(Connection conn) {
-        this.conn = conn;
+        this(new SingleConnectionProvider(conn));
+    }
+
+    public UserDAOImplementation(ConnectionProvider connections) {
+        this.connections = connections;
     }
 
     @Override
     public User authenticate(String username, String password) throws Exception {
         String query = "SELECT id, username, password, role FROM users WHERE username = ? AND password = ? AND role = 'Manager'";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = connections.getPrimaryReadConnection().prepareStatement(query)) {
             stmt.setString(1, username);
             stmt.setString(2, password);
 
@@ -36,7 +42,7 @@ public class UserDAOImplementation implements UserDAO {
     @Override
     public User getUserById(int id) throws Exception {
         String query = "SELECT id, username, password, role FROM users WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = connections.getPrimaryReadConnection().prepareStatement(query)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -50,4 +56,17 @@ public class UserDAOImplementation implements UserDAO {
             return null;
         }
     }
+
+    @Override
+    public Map<String, Integer> getUserIdsByUsername() throws Exception {
+        Map<String, Integer> userIds = new HashMap<>();
+        String query = "SELECT id, username FROM users";
+        try (Statement stmt = connections.getReadConnection().createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                userIds.put(rs.getString("username"), rs.getInt("id"));
+            }
+        }
+        return userIds;
+    }
 }
@@ -0,0 +1,339 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.Approval;
+import com.expense.manager.model.ApprovalEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * ApprovalDAO that acknowledges a decision as soon as it is forced to a local
+ * journal, and writes decisions to the approvals table from a background thread.
+ *
+ * The writer drains whatever has queued up, keeps the latest decision per
+ * expense and commits the batch in one transaction. Transient database errors
+ * are retried with exponential backoff. Decisions that fail for any other reason
+ * are isolated and moved to the dead-letter file next to the checkpoint, so the
+ * rest of their batch is still written. The journal checkpoint only advances once
+ * every decision before it is committed or dead-lettered, and decisions journaled
+ * but not committed before a crash are written on the next start.
+ *
+ * Reads go to the delegate, and the writer commits through target, which should
+ * use connections no other thread does. At most queueCapacity decisions can be
+ * waiting: beyond that, callers block for up to offerTimeoutMillis and then fail.
+ */
+public class WriteBehindApprovalDAO implements ApprovalDAO, AutoCloseable
+{
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final ApprovalDAO delegate;
+    private final ApprovalBatchWriter batchWriter;
+    private final ApprovalEventLog journal;
+    private final Path checkpointFile;
+    private final long offerTimeoutMillis;
+    private final Semaphore capacity;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Map<Integer, ApprovalEvent> unwritten = new ConcurrentHashMap<>();
+    private final Thread writer;
+    private volatile Consumer<List<Approval>> commitListener = approvals -> { };
+
+    private long accepted;
+    private long written;
+    private volatile boolean closed;
+    private int trimmedBelowSegment;
+
+    public WriteBehindApprovalDAO(ApprovalDAO delegate, ApprovalDAO target, ApprovalEventLog journal, Path checkpointFile,
+                                  int queueCapacity, long offerTimeoutMillis) throws Exception
+    {
+        this.delegate = delegate;
+        this.batchWriter = new ApprovalBatchWriter(target, ApprovalBatchWriter.deadLetterFileFor(checkpointFile));
+        this.journal = journal;
+        this.checkpointFile = checkpointFile;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.capacity = new Semaphore(queueCapacity);
+
+        recover();
+
+        writer = new Thread(this::writeLoop, "approval-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public Approval getApprovalByExpenseId(int expenseId) throws Exception
+    {
+        Approval approval = delegate.getApprovalByExpenseId(expenseId);
+        ApprovalEvent pending = unwritten.get(expenseId);
+        if (approval != null && pending != null)
+        {
+            approval.setStatus(pending.getStatus());
+            approval.setReviewerId(pending.getReviewerId());
+            approval.setComment(pending.getComment());
+            approval.setReviewDate(pending.getReviewDate());
+        }
+        return approval;
+    }
+
+    @Override
+    public void updateApproval(int expenseId, String status, int reviewerId, String comment, String reviewDate) throws Exception
+    {
+        ApprovalEvent event = new ApprovalEvent(expenseId, status, reviewerId, comment, reviewDate, System.currentTimeMillis());
+        journal.awaitDurable(append(List.of(event)));
+    }
+
+    @Override
+    public List<Approval> updateApprovals(List<Approval> approvals) throws Exception
+    {
+        if (approvals.isEmpty())
+        {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<ApprovalEvent> events = new ArrayList<>(approvals.size());
+        for (Approval approval : approvals)
+        {
+            events.add(new ApprovalEvent(approval.getExpenseId(), approval.getStatus(),
+                    approval.getReviewerId() == null ? 0 : approval.getReviewerId(),
+                    approval.getComment(), approval.getReviewDate(), now));
+        }
+        // One fsync for the whole batch
+        journal.awaitDurable(append(events));
+        // Rows are matched when the writer commits the batch, not here
+        return List.of();
+    }
+
+    /**
+     * Blocks until every decision accepted so far has been written to the table.
+     */
+    public synchronized void flush() throws InterruptedException
+    {
+        long target = accepted;
+        while (written < target && writer.isAlive())
+        {
+            wait(1000);
+        }
+    }
+
+    // Called from the writer thread with each batch once it is committed
+    public void setCommitListener(Consumer<List<Approval>> commitListener)
+    {
+        this.commitListener = commitListener;
+    }
+
+    public int getQueuedCount()
+    {
+        return queue.size();
+    }
+
+    // Journals and queues the events, returning the last journal position. Appending
+    // and queueing under one lock keeps the queue in journal order, so the last
+    // position of a committed batch is a safe checkpoint.
+    private long append(List<ApprovalEvent> events) throws Exception
+    {
+        if (closed)
+        {
+            throw new Exception("Approval writer is closed");
+        }
+        if (!capacity.tryAcquire(events.size(), offerTimeoutMillis, TimeUnit.MILLISECONDS))
+        {
+            throw new Exception("Approval queue is full; the database is not keeping up");
+        }
+
+        int queued = 0;
+        long position = 0;
+        try
+        {
+            synchronized (queue)
+            {
+                for (ApprovalEvent event : events)
+                {
+                    position = journal.append(event);
+                    unwritten.put(event.getExpenseId(), event);
+                    queue.add(new Pending(event, position));
+                    queued++;
+                }
+            }
+        } finally
+        {
+            synchronized (this)
+            {
+                accepted += queued;
+            }
+            capacity.release(events.size() - queued);
+        }
+        return position;
+    }
+
+    private void writeLoop()
+    {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (!closed || !queue.isEmpty())
+        {
+            try
+            {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                // Never let the table (and checkpoint) get ahead of the journal on disk
+                journal.awaitDurable(batch.get(batch.size() - 1).position);
+                commitWithRetry(batch);
+
+                for (Pending pending : batch)
+                {
+                    unwritten.remove(pending.event.getExpenseId(), pending.event);
+                }
+                try
+                {
+                    writeCheckpoint(batch.get(batch.size() - 1).position);
+                } catch (IOException e)
+                {
+                    // Only costs re-writing this batch after a restart
+                    System.err.println("Approval writer failed to save checkpoint: " + e.getMessage());
+                }
+                capacity.release(batch.size());
+                synchronized (this)
+                {
+                    written += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            } catch (InterruptedException e)
+            {
+                // close() interrupts only after the queue has drained or timed out
+                return;
+            } catch (IOException e)
+            {
+                // The journal was closed under us; what is left is replayed on next start
+                System.err.println("Approval writer stopped: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // Returns once every decision in the batch is committed or dead-lettered
+    private void commitWithRetry(List<Pending> batch) throws InterruptedException
+    {
+        List<Approval> approvals = coalesce(batch);
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        while (true)
+        {
+            try
+            {
+                batchWriter.write(approvals);
+                break;
+            } catch (Exception e)
+            {
+                // A transient database error, or the dead-letter file could not be written
+                System.err.println("Approval writer retrying in " + backoff + " ms: " + e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+        commitListener.accept(approvals);
+    }
+
+    // Decisions the writer has not committed when the application stopped
+    private void recover() throws Exception
+    {
+        long checkpoint = Files.exists(checkpointFile) ? ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong() : 0;
+        List<Pending> uncommitted = new ArrayList<>();
+        long end = journal.forEach(checkpoint, (position, event) -> uncommitted.add(new Pending(event, position)));
+        if (uncommitted.isEmpty())
+        {
+            return;
+        }
+
+        System.err.println("Writing " + uncommitted.size() + " journaled approval decisions left from the last run");
+        for (int from = 0; from < uncommitted.size(); from += MAX_BATCH_SIZE)
+        {
+            batchWriter.write(coalesce(uncommitted.subList(from, Math.min(from + MAX_BATCH_SIZE, uncommitted.size()))));
+        }
+        writeCheckpoint(end);
+    }
+
+    private static List<Approval> coalesce(List<Pending> batch)
+    {
+        Map<Integer, ApprovalEvent> latest = new LinkedHashMap<>();
+        for (Pending pending : batch)
+        {
+            latest.put(pending.event.getExpenseId(), pending.event);
+        }
+        List<Approval> approvals = new ArrayList<>(latest.size());
+        for (ApprovalEvent event : latest.values())
+        {
+            approvals.add(event.toApproval(0));
+        }
+        return approvals;
+    }
+
+    private void writeCheckpoint(long position) throws IOException
+    {
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(temp, ByteBuffer.allocate(8).putLong(position).array());
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Everything before the checkpoint's segment is in the table or dead-lettered,
+        // so those segments can go; that only changes when the checkpoint changes segment
+        int segment = ApprovalEventLog.segmentOf(position);
+        if (segment > trimmedBelowSegment)
+        {
+            journal.deleteSegmentsBefore(position);
+            trimmedBelowSegment = segment;
+        }
+    }
+
+    /**
+     * Stops accepting decisions, waits for the queue to drain and closes the journal.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        try
+        {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive())
+        {
+            writer.interrupt();
+            System.err.println("Approval writer did not drain in time; " + queue.size()
+                    + " decisions will be written from the journal on next start");
+        }
+        journal.close();
+    }
+
+    private static class Pending
+    {
+        private final ApprovalEvent event;
+        private final long position;
+
+        Pending(ApprovalEvent event, long position)
+        {
+            this.event = event;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.expense.manager.ingest;
+
+import com.expense.manager.dao.ExpenseDAO;
+import com.expense.manager.dao.UserDAO;
+import com.expense.manager.model.Expense;
+import com.expense.manager.model.ImportSummary;
+import com.expense.manager.util.SqlErrors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Loads an expense feed into the database as new expenses with pending approvals.
+ *
+ * One thread splits the feed into chunks of raw records, a pool parses and
+ * validates chunks in parallel, and the calling thread inserts the chunks in feed
+ * order, one transaction per chunk, then advances the checkpoint. Only a few
+ * chunks are in flight at once, so memory stays flat however large the feed is.
+ * Rejected records are appended to the rejects file with their line number and
+ * reason.
+ *
+ * Each chunk's transaction also records the feed's progress in the database, so
+ * an interrupted import resumes from the checkpoint and skips the chunks that
+ * committed after it was saved; the rejects file is cut back to its length at the
+ * checkpoint, so their rejects are not written twice. With sharded expenses each
+ * shard commits its part of a chunk, and its progress, separately.
+ *
+ * A chunk that fails for a reason other than a lost connection or a lock conflict
+ * would fail again on every run, so it is inserted again one row at a time and the
+ * rows the database refuses are rejected.
+ */
+public class ExpenseImporter
+{
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+
+    private static final Future<Chunk> END_OF_FEED = CompletableFuture.completedFuture(null);
+
+    private final ExpenseDAO expenseDAO;
+    private final UserDAO userDAO;
+    private final int parserThreads;
+    private final int chunkSize;
+    private final long progressIntervalMillis;
+    private Consumer<ImportSummary> progressListener = summary -> { };
+
+    public ExpenseImporter(ExpenseDAO expenseDAO, UserDAO userDAO, int parserThreads, int chunkSize, long progressIntervalMillis)
+    {
+        this.expenseDAO = expenseDAO;
+        this.userDAO = userDAO;
+        this.parserThreads = Math.max(1, parserThreads);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
+    // Called from the importing thread at most once per progress interval
+    public void setProgressListener(Consumer<ImportSummary> progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+
+    public ImportSummary importFeed(Path feed, Path checkpointFile, Path rejectsFile) throws Exception
+    {
+        long started = System.currentTimeMillis();
+        FeedFormat format = FeedFormat.forFile(feed);
+        ImportCheckpoint checkpoint = ImportCheckpoint.load(checkpointFile, feed);
+        long resumedFrom = checkpoint.getRecords();
+        if (checkpoint.isComplete())
+        {
+            return summary(checkpoint, resumedFrom, 0, started);
+        }
+
+        Map<String, Integer> userIds = userDAO.getUserIdsByUsername();
+
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, runnable -> {
+            Thread thread = new Thread(runnable, "feed-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Future<Chunk>> parsed = new ArrayBlockingQueue<>(parserThreads * 2);
+
+        try (FeedReader reader = new FeedReader(Files.newBufferedReader(feed, StandardCharsets.UTF_8), format);
+             FileChannel rejects = FileChannel.open(rejectsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+        {
+            if (checkpoint.getRejectsLength() < 0)
+            {
+                checkpoint.start(rejects.size());
+                checkpoint.save();
+            } else if (rejects.size() > checkpoint.getRejectsLength())
+            {
+                rejects.truncate(checkpoint.getRejectsLength());
+            }
+            rejects.position(rejects.size());
+
+            FeedParser parser = new FeedParser(format, format == FeedFormat.CSV ? reader.next() : null, userIds);
+            for (long skipped = 0; skipped < resumedFrom; skipped++)
+            {
+                if (reader.next() == null)
+                {
+                    throw new IOException("Feed has fewer records than its checkpoint (" + resumedFrom + ")");
+                }
+            }
+
+            Thread splitter = new Thread(() -> split(reader, parser, parsers, parsed, resumedFrom), "feed-reader");
+            splitter.setDaemon(true);
+            splitter.start();
+
+            long importedThisRun = 0;
+            long lastProgressAt = started;
+            try
+            {
+                Chunk chunk;
+                while ((chunk = take(parsed)) != null)
+                {
+                    importedThisRun += insert(checkpoint.getFeedKey(), chunk);
+                    writeRejects(rejects, chunk.rejects);
+
+                    checkpoint.advance(chunk.endRecord, chunk.expenses.size() - chunk.failedRows, chunk.rejects.size(),
+                            rejects.position());
+                    checkpoint.save();
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastProgressAt >= progressIntervalMillis)
+                    {
+                        progressListener.accept(summary(checkpoint, resumedFrom, importedThisRun, started));
+                        lastProgressAt = now;
+                    }
+                }
+            } finally
+            {
+                splitter.interrupt();
+            }
+
+            checkpoint.markComplete();
+            checkpoint.save();
+            return summary(checkpoint, resumedFrom, importedThisRun, started);
+        } finally
+        {
+            parsers.shutdownNow();
+        }
+    }
+
+    // Returns the number of rows inserted; rows committed by an earlier run are skipped
+    private int insert(String feed, Chunk chunk) throws Exception
+    {
+        try
+        {
+            return expenseDAO.insertExpenses(feed, chunk.endRecord, chunk.expenses);
+        } catch (Exception e)
+        {
+            if (SqlErrors.isTransient(e))
+            {
+                throw e;
+            }
+        }
+
+        // Each row records its own progress, so the rows before a bad one stay committed
+        int inserted = 0;
+        for (int i = 0; i < chunk.expenses.size(); i++)
+        {
+            try
+            {
+                inserted += expenseDAO.insertExpenses(feed, chunk.records[i], List.of(chunk.expenses.get(i)));
+            } catch (Exception rowError)
+            {
+                if (SqlErrors.isTransient(rowError))
+                {
+                    throw rowError;
+                }
+                chunk.rejects.add("line " + chunk.lines[i] + ": " + rowError.getMessage());
+                chunk.failedRows++;
+            }
+        }
+        return inserted;
+    }
+
+    // On disk before the checkpoint that covers them is saved
+    private static void writeRejects(FileChannel rejects, List<String> lines) throws IOException
+    {
+        if (lines.isEmpty())
+        {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : lines)
+        {
+            text.append(line).append(System.lineSeparator());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining())
+        {
+            rejects.write(buffer);
+        }
+        rejects.force(false);
+    }
+
+    // Runs on the reader thread: hands chunks of raw records to the parser pool in
+    // feed order, blocking while the committer is behind.
+    private void split(FeedReader reader, FeedParser parser, ExecutorService parsers,
+                       BlockingQueue<Future<Chunk>> parsed, long firstRecord)
+    {
+        long record = firstRecord;
+        try
+        {
+            try
+            {
+                while (true)
+                {
+                    List<String> records = new ArrayList<>(chunkSize);
+                    long[] lines = new long[chunkSize];
+                    String raw;
+                    while (records.size() < chunkSize && (raw = reader.next()) != null)
+                    {
+                        lines[records.size()] = reader.getRecordLine();
+                        records.add(raw);
+                    }
+                    if (records.isEmpty())
+                    {
+                        break;
+                    }
+
+                    record += records.size();
+                    long endRecord = record;
+                    parsed.put(parsers.submit(() -> parse(parser, records, lines, endRecord)));
+                    if (records.size() < chunkSize)
+                    {
+                        break;
+                    }
+                }
+                parsed.put(END_OF_FEED);
+            } catch (IOException e)
+            {
+                parsed.put(CompletableFuture.failedFuture(e));
+            }
+        } catch (InterruptedException e)
+        {
+            // The import stopped; nothing is waiting for more chunks
+        }
+    }
+
+    private static Chunk parse(FeedParser parser, List<String> records, long[] lines, long endRecord)
+    {
+        Chunk chunk = new Chunk(endRecord, records.size());
+        long firstRecord = endRecord - records.size();
+        for (int i = 0; i < records.size(); i++)
+        {
+            try
+            {
+                Expense expense = parser.parse(records.get(i));
+                chunk.records[chunk.expenses.size()] = firstRecord + i + 1;
+                chunk.lines[chunk.expenses.size()] = lines[i];
+                chunk.expenses.add(expense);
+            } catch (IllegalArgumentException e)
+            {
+                chunk.rejects.add("line " + lines[i] + ": " + e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    private static Chunk take(BlockingQueue<Future<Chunk>> parsed) throws Exception
+    {
+        try
+        {
+            return parsed.take().get();
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof Exception)
+            {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static ImportSummary summary(ImportCheckpoint checkpoint, long resumedFrom, long importedThisRun, long started)
+    {
+        return new ImportSummary(resumedFrom, checkpoint.getRecords(), checkpoint.getImported(), checkpoint.getRejected(),
+                importedThisRun, System.currentTimeMillis() - started, checkpoint.isComplete());
+    }
+
+    private static class Chunk
+    {
+        private final long endRecord;
+        private final List<Expense> expenses;
+        // Per expense: its record number (from 1) and its line in the feed
+        private final long[] records;
+        private final long[] lines;
+        private final List<String> rejects = new ArrayList<>();
+        private int failedRows;
+
+        Chunk(long endRecord, int size)
+        {
+            this.endRecord = endRecord;
+            this.expenses = new ArrayList<>(size);
+            this.records = new long[size];
+            this.lines = new long[size];
+        }
+    }
+}
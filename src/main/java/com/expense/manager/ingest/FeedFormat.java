@@ -0,0 +1,18 @@
+package com.expense.manager.ingest;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum FeedFormat
+{
+    // Header row naming the columns, then one expense per record (RFC 4180 quoting)
+    CSV,
+    // A JSON array of flat expense objects, or one object per line
+    JSON;
+
+    public static FeedFormat forFile(Path feed)
+    {
+        String name = feed.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON : CSV;
+    }
+}
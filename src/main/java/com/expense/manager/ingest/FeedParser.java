@@ -0,0 +1,326 @@
+package com.expense.manager.ingest;
+
+import com.expense.manager.model.Expense;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns raw feed records into expenses and validates them, resolving usernames
+ * through a lookup loaded once per import. Invalid records throw
+ * IllegalArgumentException with the reason. Holds no per-record state, so one
+ * parser is shared by all parsing threads.
+ */
+public class FeedParser
+{
+    private static final String[] FIELDS = {"username", "amount", "description", "date"};
+    private static final int USERNAME = 0;
+    private static final int AMOUNT = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int DATE = 3;
+
+    private final FeedFormat format;
+    private final int[] csvColumns;
+    private final Map<String, Integer> userIds = new HashMap<>();
+
+    /**
+     * @param csvHeader the first CSV record (ignored for JSON feeds)
+     * @param userIds   user ids keyed by username
+     */
+    public FeedParser(FeedFormat format, String csvHeader, Map<String, Integer> userIds)
+    {
+        this.format = format;
+        // The database compares usernames case-insensitively
+        for (Map.Entry<String, Integer> user : userIds.entrySet())
+        {
+            this.userIds.put(user.getKey().toLowerCase(Locale.ROOT), user.getValue());
+        }
+
+        if (format == FeedFormat.JSON)
+        {
+            csvColumns = null;
+            return;
+        }
+        if (csvHeader == null)
+        {
+            throw new IllegalArgumentException("CSV feed is empty");
+        }
+        List<String> header = splitCsv(csvHeader);
+        csvColumns = new int[FIELDS.length];
+        for (int f = 0; f < FIELDS.length; f++)
+        {
+            csvColumns[f] = -1;
+            for (int c = 0; c < header.size(); c++)
+            {
+                if (header.get(c).equalsIgnoreCase(FIELDS[f]))
+                {
+                    csvColumns[f] = c;
+                }
+            }
+            if (csvColumns[f] < 0)
+            {
+                throw new IllegalArgumentException("CSV header has no '" + FIELDS[f] + "' column");
+            }
+        }
+    }
+
+    public Expense parse(String record)
+    {
+        String[] values = format == FeedFormat.CSV ? csvValues(record) : new JsonObject(record).values();
+
+        String username = required(values, USERNAME);
+        Integer userId = userIds.get(username.toLowerCase(Locale.ROOT));
+        if (userId == null)
+        {
+            throw new IllegalArgumentException("unknown user '" + username + "'");
+        }
+
+        BigDecimal amount;
+        try
+        {
+            amount = new BigDecimal(required(values, AMOUNT));
+        } catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("amount '" + values[AMOUNT] + "' is not a number");
+        }
+        if (amount.signum() <= 0)
+        {
+            throw new IllegalArgumentException("amount must be positive");
+        }
+        if (amount.stripTrailingZeros().scale() > 2)
+        {
+            throw new IllegalArgumentException("amount has more than two decimal places");
+        }
+
+        String date;
+        try
+        {
+            date = LocalDate.parse(required(values, DATE)).toString();
+        } catch (DateTimeParseException e)
+        {
+            throw new IllegalArgumentException("date '" + values[DATE] + "' is not YYYY-MM-DD");
+        }
+
+        Expense expense = new Expense(0, userId, amount.doubleValue(), required(values, DESCRIPTION), date);
+        expense.setEmployeeName(username);
+        expense.setStatus("pending");
+        return expense;
+    }
+
+    private static String required(String[] values, int field)
+    {
+        String value = values[field] == null ? "" : values[field].trim();
+        if (value.isEmpty())
+        {
+            throw new IllegalArgumentException("missing " + FIELDS[field]);
+        }
+        return value;
+    }
+
+    private String[] csvValues(String record)
+    {
+        List<String> fields = splitCsv(record);
+        String[] values = new String[FIELDS.length];
+        for (int f = 0; f < FIELDS.length; f++)
+        {
+            if (csvColumns[f] < fields.size())
+            {
+                values[f] = fields.get(csvColumns[f]);
+            }
+        }
+        return values;
+    }
+
+    // Fields of one CSV record; quoted fields may contain commas, line breaks and "" for a quote
+    static List<String> splitCsv(String record)
+    {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++)
+        {
+            char c = record.charAt(i);
+            if (quoted)
+            {
+                if (c != '"')
+                {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"')
+                {
+                    field.append('"');
+                    i++;
+                } else
+                {
+                    quoted = false;
+                }
+            } else if (c == '"')
+            {
+                quoted = true;
+            } else if (c == ',')
+            {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else
+            {
+                field.append(c);
+            }
+        }
+        if (quoted)
+        {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    // Reads the known fields out of one flat JSON object; unknown keys are skipped
+    private static class JsonObject
+    {
+        private final String text;
+        private int position;
+
+        JsonObject(String text)
+        {
+            this.text = text;
+        }
+
+        String[] values()
+        {
+            String[] values = new String[FIELDS.length];
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}')
+            {
+                return values;
+            }
+            while (true)
+            {
+                skipWhitespace();
+                String key = readString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                String value = readValue();
+                for (int f = 0; f < FIELDS.length; f++)
+                {
+                    if (FIELDS[f].equalsIgnoreCase(key))
+                    {
+                        values[f] = value;
+                    }
+                }
+                skipWhitespace();
+                char next = next();
+                if (next == '}')
+                {
+                    return values;
+                }
+                if (next != ',')
+                {
+                    throw new IllegalArgumentException("expected ',' or '}' in JSON record");
+                }
+            }
+        }
+
+        private String readValue()
+        {
+            char c = peek();
+            if (c == '"')
+            {
+                return readString();
+            }
+            if (c == '{' || c == '[')
+            {
+                throw new IllegalArgumentException("nested JSON values are not supported");
+            }
+            int start = position;
+            while (position < text.length() && ",}".indexOf(text.charAt(position)) < 0
+                    && !Character.isWhitespace(text.charAt(position)))
+            {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String readString()
+        {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true)
+            {
+                char c = next();
+                if (c == '"')
+                {
+                    return value.toString();
+                }
+                if (c != '\\')
+                {
+                    value.append(c);
+                    continue;
+                }
+                char escape = next();
+                switch (escape)
+                {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (position + 4 > text.length())
+                        {
+                            throw new IllegalArgumentException("truncated \\u escape in JSON record");
+                        }
+                        try
+                        {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e)
+                        {
+                            throw new IllegalArgumentException("invalid \\u escape in JSON record");
+                        }
+                        position += 4;
+                        break;
+                    default: value.append(escape);
+                }
+            }
+        }
+
+        private void skipWhitespace()
+        {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            {
+                position++;
+            }
+        }
+
+        private void expect(char expected)
+        {
+            if (next() != expected)
+            {
+                throw new IllegalArgumentException("expected '" + expected + "' in JSON record");
+            }
+        }
+
+        private char peek()
+        {
+            if (position >= text.length())
+            {
+                throw new IllegalArgumentException("JSON record ends early");
+            }
+            return text.charAt(position);
+        }
+
+        private char next()
+        {
+            char c = peek();
+            position++;
+            return c;
+        }
+    }
+}
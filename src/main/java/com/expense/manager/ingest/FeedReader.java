@@ -0,0 +1,184 @@
+package com.expense.manager.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a feed into raw records without interpreting them, so the expensive
+ * parsing can run on other threads. A CSV record ends at a line break outside
+ * quotes; a JSON record is one top-level object, whether the objects are
+ * elements of an array or one per line.
+ */
+public class FeedReader implements AutoCloseable
+{
+    private final Reader in;
+    private final FeedFormat format;
+    private final char[] buffer = new char[64 * 1024];
+    private final StringBuilder record = new StringBuilder(256);
+    private int position;
+    private int limit;
+    private long line = 1;
+    private long recordLine;
+    private boolean started;
+
+    public FeedReader(Reader in, FeedFormat format)
+    {
+        this.in = in;
+        this.format = format;
+    }
+
+    /**
+     * Returns the next record, or null at the end of the feed.
+     */
+    public String next() throws IOException
+    {
+        record.setLength(0);
+        return format == FeedFormat.CSV ? nextCsv() : nextJson();
+    }
+
+    // Line of the feed the last record returned by next() started on
+    public long getRecordLine()
+    {
+        return recordLine;
+    }
+
+    private String nextCsv() throws IOException
+    {
+        boolean quoted = false;
+        int c;
+        while ((c = read()) != -1)
+        {
+            if (c == '\n' && !quoted)
+            {
+                if (isBlank(record))
+                {
+                    record.setLength(0);
+                    continue;
+                }
+                return finishCsvRecord();
+            }
+            if (record.length() == 0)
+            {
+                recordLine = line;
+            }
+            if (c == '"')
+            {
+                // An escaped quote ("") toggles twice
+                quoted = !quoted;
+            }
+            record.append((char) c);
+        }
+        return isBlank(record) ? null : finishCsvRecord();
+    }
+
+    private String finishCsvRecord()
+    {
+        int length = record.length();
+        if (length > 0 && record.charAt(length - 1) == '\r')
+        {
+            record.setLength(length - 1);
+        }
+        return record.toString();
+    }
+
+    private String nextJson() throws IOException
+    {
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        int c;
+        while ((c = read()) != -1)
+        {
+            if (depth == 0)
+            {
+                if (c == '{')
+                {
+                    recordLine = line;
+                    depth = 1;
+                    record.append('{');
+                } else if (!Character.isWhitespace(c) && c != '[' && c != ']' && c != ',')
+                {
+                    throw new IOException("Unexpected '" + (char) c + "' between JSON records at line " + line);
+                }
+                continue;
+            }
+
+            record.append((char) c);
+            if (inString)
+            {
+                if (escaped)
+                {
+                    escaped = false;
+                } else if (c == '\\')
+                {
+                    escaped = true;
+                } else if (c == '"')
+                {
+                    inString = false;
+                }
+            } else if (c == '"')
+            {
+                inString = true;
+            } else if (c == '{' || c == '[')
+            {
+                depth++;
+            } else if ((c == '}' || c == ']') && --depth == 0)
+            {
+                return record.toString();
+            }
+        }
+        if (depth > 0)
+        {
+            throw new IOException("Feed ends inside the JSON record starting at line " + recordLine);
+        }
+        return null;
+    }
+
+    private int read() throws IOException
+    {
+        if (position == limit)
+        {
+            limit = in.read(buffer);
+            position = 0;
+            if (limit <= 0)
+            {
+                limit = 0;
+                return -1;
+            }
+            if (!started)
+            {
+                started = true;
+                if (buffer[0] == '\uFEFF')
+                {
+                    // Byte order mark left in by spreadsheet exports
+                    position = 1;
+                    return read();
+                }
+            }
+        }
+        char c = buffer[position++];
+        if (c == '\n')
+        {
+            line++;
+        }
+        return c;
+    }
+
+    private static boolean isBlank(CharSequence text)
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (!Character.isWhitespace(text.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+}
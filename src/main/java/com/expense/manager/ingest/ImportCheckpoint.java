@@ -0,0 +1,125 @@
+package com.expense.manager.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * How far an import of one feed has got: the number of records (header excluded)
+ * whose rows are committed, with running totals and the length of the rejects
+ * file at that point. The feed's size and modification time are recorded so a
+ * checkpoint is not applied to a different file.
+ *
+ * The database records its own progress with each chunk (see getFeedKey), so a
+ * checkpoint lagging the database by a chunk only costs that chunk's lookup.
+ */
+class ImportCheckpoint
+{
+    private final Path file;
+    private final String feedName;
+    private final long feedSize;
+    private final long feedModified;
+    private long records;
+    private long imported;
+    private long rejected;
+    // -1 until the import has started
+    private long rejectsLength = -1;
+    private boolean complete;
+
+    private ImportCheckpoint(Path file, String feedName, long feedSize, long feedModified)
+    {
+        this.file = file;
+        this.feedName = feedName;
+        this.feedSize = feedSize;
+        this.feedModified = feedModified;
+    }
+
+    static ImportCheckpoint load(Path file, Path feed) throws IOException
+    {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(file, feed.getFileName().toString(), Files.size(feed), Files.getLastModifiedTime(feed).toMillis());
+        if (!Files.exists(file))
+        {
+            return checkpoint;
+        }
+
+        Properties saved = new Properties();
+        try (Reader in = Files.newBufferedReader(file))
+        {
+            saved.load(in);
+        }
+        if (Long.parseLong(saved.getProperty("feedSize", "-1")) != checkpoint.feedSize
+                || Long.parseLong(saved.getProperty("feedModified", "-1")) != checkpoint.feedModified)
+        {
+            throw new IOException("Checkpoint " + file + " was written for a different version of " + feed
+                    + "; delete it to import the feed from the start");
+        }
+        checkpoint.records = Long.parseLong(saved.getProperty("records", "0"));
+        checkpoint.imported = Long.parseLong(saved.getProperty("imported", "0"));
+        checkpoint.rejected = Long.parseLong(saved.getProperty("rejected", "0"));
+        checkpoint.rejectsLength = Long.parseLong(saved.getProperty("rejectsLength", "-1"));
+        checkpoint.complete = Boolean.parseBoolean(saved.getProperty("complete"));
+        return checkpoint;
+    }
+
+    long getRecords() { return records; }
+    long getImported() { return imported; }
+    long getRejected() { return rejected; }
+    long getRejectsLength() { return rejectsLength; }
+    boolean isComplete() { return complete; }
+
+    // Names this version of the feed in the database's import progress
+    String getFeedKey()
+    {
+        return feedName + "@" + feedSize + "@" + feedModified;
+    }
+
+    void start(long rejectsLength)
+    {
+        this.rejectsLength = rejectsLength;
+    }
+
+    void advance(long records, int imported, int rejected, long rejectsLength)
+    {
+        this.records = records;
+        this.imported += imported;
+        this.rejected += rejected;
+        this.rejectsLength = rejectsLength;
+    }
+
+    void markComplete()
+    {
+        complete = true;
+    }
+
+    void save() throws IOException
+    {
+        Properties saved = new Properties();
+        saved.setProperty("feedSize", Long.toString(feedSize));
+        saved.setProperty("feedModified", Long.toString(feedModified));
+        saved.setProperty("records", Long.toString(records));
+        saved.setProperty("imported", Long.toString(imported));
+        saved.setProperty("rejected", Long.toString(rejected));
+        saved.setProperty("rejectsLength", Long.toString(rejectsLength));
+        saved.setProperty("complete", Boolean.toString(complete));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8))
+        {
+            saved.store(out, "Expense import checkpoint");
+            out.flush();
+            // On disk before the rename, so a crash cannot leave an empty checkpoint behind
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,36 @@
+package com.expense.manager.model;
+
+public class ApprovalEvent
+{
+    private int expenseId;
+    private String status;
+    private int reviewerId;
+    private String comment;
+    private String reviewDate;
+    private long timestamp;
+
+    public ApprovalEvent(int expenseId, String status, int reviewerId, String comment, String reviewDate, long timestamp) {
+        this.expenseId = expenseId;
+        this.status = status;
+        this.reviewerId = reviewerId;
+        this.comment = comment;
+        this.reviewDate = reviewDate;
+        this.timestamp = timestamp;
+    }
+
+    public int getExpenseId() { return expenseId; }
+    public String getStatus() { return status; }
+    public int getReviewerId() { return reviewerId; }
+    public String getComment() { return comment; }
+    public String getReviewDate() { return reviewDate; }
+    public long getTimestamp() { return timestamp; }
+
+    // Approval row id is not part of the event; callers that need it read the table
+    public Approval toApproval(int approvalId) {
+        Approval approval = new Approval(approvalId, expenseId, status);
+        approval.setReviewerId(reviewerId);
+        approval.setComment(comment);
+        approval.setReviewDate(reviewDate);
+        return approval;
+    }
+}
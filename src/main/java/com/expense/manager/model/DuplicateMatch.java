@@ -0,0 +1,35 @@
+package com.expense.manager.model;
+
+public class DuplicateMatch
+{
+    // EXACT: same amount to the cent; NEAR: similar amount and description
+    public enum Kind { EXACT, NEAR }
+
+    private int expenseId;
+    private int matchedExpenseId;
+    private Kind kind;
+    private double similarity;
+    private long daysApart;
+    private double matchedAmount;
+    private String matchedDate;
+
+    public DuplicateMatch(int expenseId, int matchedExpenseId, Kind kind, double similarity,
+                          long daysApart, double matchedAmount, String matchedDate) {
+        this.expenseId = expenseId;
+        this.matchedExpenseId = matchedExpenseId;
+        this.kind = kind;
+        this.similarity = similarity;
+        this.daysApart = daysApart;
+        this.matchedAmount = matchedAmount;
+        this.matchedDate = matchedDate;
+    }
+
+    public int getExpenseId() { return expenseId; }
+    public int getMatchedExpenseId() { return matchedExpenseId; }
+    public Kind getKind() { return kind; }
+    // Estimated description similarity, 0 to 1
+    public double getSimilarity() { return similarity; }
+    public long getDaysApart() { return daysApart; }
+    public double getMatchedAmount() { return matchedAmount; }
+    public String getMatchedDate() { return matchedDate; }
+}
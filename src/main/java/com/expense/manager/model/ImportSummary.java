@@ -0,0 +1,37 @@
+package com.expense.manager.model;
+
+public class ImportSummary
+{
+    private long resumedFromRecord;
+    private long records;
+    private long imported;
+    private long rejected;
+    private long importedThisRun;
+    private long elapsedMillis;
+    private boolean complete;
+
+    public ImportSummary(long resumedFromRecord, long records, long imported, long rejected,
+                         long importedThisRun, long elapsedMillis, boolean complete) {
+        this.resumedFromRecord = resumedFromRecord;
+        this.records = records;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.importedThisRun = importedThisRun;
+        this.elapsedMillis = elapsedMillis;
+        this.complete = complete;
+    }
+
+    // Records already done by an earlier, interrupted run of the same feed
+    public long getResumedFromRecord() { return resumedFromRecord; }
+    // Totals over the whole feed so far, including earlier runs
+    public long getRecords() { return records; }
+    public long getImported() { return imported; }
+    public long getRejected() { return rejected; }
+    public long getImportedThisRun() { return importedThisRun; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public boolean isComplete() { return complete; }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? 0 : importedThisRun * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,28 @@
+package com.expense.manager.model;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TeamReport
+{
+    private Map<String, List<Expense>> expensesByEmployee;
+    private Map<String, Double> subtotals = new LinkedHashMap<>();
+    private double total;
+    private int expenseCount;
+
+    public TeamReport(Map<String, List<Expense>> expensesByEmployee) {
+        this.expensesByEmployee = expensesByEmployee;
+        for (Map.Entry<String, List<Expense>> employee : expensesByEmployee.entrySet()) {
+            double subtotal = employee.getValue().stream().mapToDouble(Expense::getAmount).sum();
+            subtotals.put(employee.getKey(), subtotal);
+            total += subtotal;
+            expenseCount += employee.getValue().size();
+        }
+    }
+
+    public Map<String, List<Expense>> getExpensesByEmployee() { return expensesByEmployee; }
+    public Map<String, Double> getSubtotals() { return subtotals; }
+    public double getTotal() { return total; }
+    public int getExpenseCount() { return expenseCount; }
+}
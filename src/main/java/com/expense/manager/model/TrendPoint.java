@@ -0,0 +1,41 @@
+package com.expense.manager.model;
+
+import java.util.Map;
+
+public class TrendPoint
+{
+    private String periodStart;
+    private String periodEnd;
+    private double total;
+    private int count;
+    private Map<String, Double> totalsByEmployee;
+    private Map<String, Double> totalsByStatus;
+    private double movingAverage;
+    private double change;
+    private Double changePercent;
+
+    public TrendPoint(String periodStart, String periodEnd, double total, int count,
+                      Map<String, Double> totalsByEmployee, Map<String, Double> totalsByStatus) {
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+        this.total = total;
+        this.count = count;
+        this.totalsByEmployee = totalsByEmployee;
+        this.totalsByStatus = totalsByStatus;
+    }
+
+    public String getPeriodStart() { return periodStart; }
+    public String getPeriodEnd() { return periodEnd; }
+    public double getTotal() { return total; }
+    public int getCount() { return count; }
+    public Map<String, Double> getTotalsByEmployee() { return totalsByEmployee; }
+    public Map<String, Double> getTotalsByStatus() { return totalsByStatus; }
+    public double getMovingAverage() { return movingAverage; }
+    public double getChange() { return change; }
+    // null when the previous period had no spend
+    public Double getChangePercent() { return changePercent; }
+
+    public void setMovingAverage(double movingAverage) { this.movingAverage = movingAverage; }
+    public void setChange(double change) { this.change = change; }
+    public void setChangePercent(Double changePercent) { this.changePercent = changePercent; }
+}
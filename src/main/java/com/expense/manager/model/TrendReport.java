@@ -0,0 +1,20 @@
+package com.expense.manager.model;
+
+import java.util.List;
+
+public class TrendReport
+{
+    private String granularity;
+    private int movingAverageWindow;
+    private List<TrendPoint> points;
+
+    public TrendReport(String granularity, int movingAverageWindow, List<TrendPoint> points) {
+        this.granularity = granularity;
+        this.movingAverageWindow = movingAverageWindow;
+        this.points = points;
+    }
+
+    public String getGranularity() { return granularity; }
+    public int getMovingAverageWindow() { return movingAverageWindow; }
+    public List<TrendPoint> getPoints() { return points; }
+}
@@ -0,0 +1,337 @@
+package com.expense.manager.service;
+
+import com.expense.manager.dao.ExpenseDAO;
+import com.expense.manager.model.DuplicateMatch;
+import com.expense.manager.model.Expense;
+import com.expense.manager.util.ExpenseIdMarks;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Finds expenses that look like a resubmission of another expense by the same
+ * employee within a few days.
+ *
+ * Exact duplicates have the same amount to the cent; they are found through hash
+ * buckets keyed by (user, amount, date / window), probing the neighbouring date
+ * buckets. Near duplicates have amounts within 10% and descriptions whose
+ * estimated Jaccard similarity (character 3-grams) is at least 0.8; each
+ * description gets a MinHash signature, and only expenses sharing one of its LSH
+ * bands are compared, so a check never scans the history.
+ *
+ * The index is filled once, from an ExpenseCache's rows and marks (seed) or from
+ * the DAO, and then extended with the expenses it does not have yet, found per
+ * shard through ExpenseIdMarks (ids are neither global nor visible in order).
+ * Filling it reads the whole history, so callers do that off the UI thread and
+ * check isLoaded() first. Checks run on a parallel stream under the read lock;
+ * extending the index takes the write lock.
+ *
+ * Memory: each indexed expense with a description costs about 240 bytes for its
+ * entry (48 for the Entry, 144 for its 32-value signature, 48 for its array of
+ * band chain links) plus about 50 bytes in the id map, and each bucket head it
+ * is the first in (one exact bucket, eight band buckets) about 60 bytes more:
+ * roughly 300 to 850 bytes per expense with compressed references.
+ */
+public class DuplicateDetector
+{
+    public static final int DEFAULT_WINDOW_DAYS = 3;
+
+    private static final int SIGNATURE_SIZE = 32;
+    // 8 bands of 4 rows: pairs with similarity 0.8 share a band ~98% of the time, pairs at 0.4 ~19%
+    private static final int BANDS = 8;
+    private static final int ROWS_PER_BAND = SIGNATURE_SIZE / BANDS;
+    private static final int SHINGLE_LENGTH = 3;
+    private static final double NEAR_DUPLICATE_SIMILARITY = 0.8;
+    private static final double NEAR_DUPLICATE_AMOUNT_TOLERANCE = 0.10;
+    private static final int MAX_MATCHES = 5;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    // Fixed seed so signatures are comparable across runs
+    private static final long[] HASH_MULTIPLIERS = new long[SIGNATURE_SIZE];
+    private static final long[] HASH_OFFSETS = new long[SIGNATURE_SIZE];
+    static {
+        Random random = new Random(20240101L);
+        for (int h = 0; h < SIGNATURE_SIZE; h++) {
+            HASH_MULTIPLIERS[h] = random.nextLong() | 1;
+            HASH_OFFSETS[h] = random.nextLong();
+        }
+    }
+
+    private static final Comparator<DuplicateMatch> STRONGEST_FIRST = Comparator
+            .comparing(DuplicateMatch::getKind)
+            .thenComparingLong(DuplicateMatch::getDaysApart)
+            .thenComparing(Comparator.comparingDouble(DuplicateMatch::getSimilarity).reversed());
+
+    private final int windowDays;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    // Bucket heads; the rest of a bucket is chained through the entries themselves
+    private final Map<Long, Entry> exactBuckets = new HashMap<>();
+    private final Map<Long, Entry> bandBuckets = new HashMap<>();
+    private ExpenseIdMarks marks = new ExpenseIdMarks();
+    private volatile boolean loaded;
+
+    public DuplicateDetector() {
+        this(DEFAULT_WINDOW_DAYS);
+    }
+
+    public DuplicateDetector(int windowDays) {
+        this.windowDays = Math.max(1, windowDays);
+    }
+
+    /**
+     * Indexes the expenses created since the last refresh (all of them the first
+     * time, unless seeded).
+     */
+    public synchronized void refresh(ExpenseDAO expenseDAO) throws Exception {
+        index(expenseDAO.getNewExpenses(marks, this::contains));
+        loaded = true;
+    }
+
+    /**
+     * Indexes expenses already in memory and takes over the marks they were found
+     * with, so the next refresh only scans the windows below them. The marks must
+     * be read before the expenses.
+     */
+    public synchronized void seed(Collection<Expense> expenses, ExpenseIdMarks expensesMarks) {
+        index(expenses);
+        marks = expensesMarks.copy();
+    }
+
+    // Whether a refresh has completed, so that refresh no longer reads the whole history
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private boolean contains(int expenseId) {
+        lock.readLock().lock();
+        try {
+            return entries.containsKey(expenseId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void index(Collection<Expense> expenses) {
+        // Signatures are the expensive part, so compute them before taking the lock
+        List<Entry> prepared = expenses.parallelStream()
+                .map(DuplicateDetector::entry)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        lock.writeLock().lock();
+        try {
+            for (Entry entry : prepared) {
+                if (entries.putIfAbsent(entry.id, entry) != null) {
+                    continue;
+                }
+                entry.nextExact = exactBuckets.put(exactKey(entry.userId, entry.cents, Math.floorDiv(entry.epochDay, windowDays)), entry);
+                if (entry.signature != null) {
+                    for (int band = 0; band < BANDS; band++) {
+                        entry.nextInBand[band] = bandBuckets.put(bandKey(entry.userId, band, entry.signature), entry);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the likely duplicates of each expense that has any, strongest first,
+     * keyed by expense id. The expenses are checked in parallel.
+     */
+    public Map<Integer, List<DuplicateMatch>> findDuplicates(List<Expense> expenses) {
+        lock.readLock().lock();
+        try {
+            // Worker threads read the index while this thread holds the read lock
+            return expenses.parallelStream()
+                    .map(this::matchesFor)
+                    .filter(matches -> !matches.isEmpty())
+                    .collect(Collectors.toMap(matches -> matches.get(0).getExpenseId(), matches -> matches,
+                            (first, second) -> first));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<DuplicateMatch> matchesFor(Expense expense) {
+        Entry probe = entry(expense);
+        if (probe == null) {
+            return List.of();
+        }
+
+        Map<Integer, DuplicateMatch> found = new HashMap<>();
+        long bucket = Math.floorDiv(probe.epochDay, windowDays);
+        for (long b = bucket - 1; b <= bucket + 1; b++) {
+            Entry head = exactBuckets.get(exactKey(probe.userId, probe.cents, b));
+            for (Entry candidate = head; candidate != null; candidate = candidate.nextExact) {
+                long daysApart = Math.abs(candidate.epochDay - probe.epochDay);
+                if (candidate.id != probe.id && candidate.userId == probe.userId
+                        && candidate.cents == probe.cents && daysApart <= windowDays) {
+                    found.put(candidate.id, match(probe, candidate, DuplicateMatch.Kind.EXACT, daysApart));
+                }
+            }
+        }
+
+        if (probe.signature != null) {
+            for (int band = 0; band < BANDS; band++) {
+                Entry head = bandBuckets.get(bandKey(probe.userId, band, probe.signature));
+                for (Entry candidate = head; candidate != null; candidate = candidate.nextInBand[band]) {
+                    if (candidate.id == probe.id || candidate.userId != probe.userId || found.containsKey(candidate.id)) {
+                        continue;
+                    }
+                    long daysApart = Math.abs(candidate.epochDay - probe.epochDay);
+                    long tolerance = Math.round(NEAR_DUPLICATE_AMOUNT_TOLERANCE * Math.max(candidate.cents, probe.cents));
+                    if (daysApart <= windowDays && Math.abs(candidate.cents - probe.cents) <= tolerance
+                            && similarity(probe.signature, candidate.signature) >= NEAR_DUPLICATE_SIMILARITY) {
+                        found.put(candidate.id, match(probe, candidate, DuplicateMatch.Kind.NEAR, daysApart));
+                    }
+                }
+            }
+        }
+
+        if (found.isEmpty()) {
+            return List.of();
+        }
+        return found.values().stream()
+                .sorted(STRONGEST_FIRST)
+                .limit(MAX_MATCHES)
+                .collect(Collectors.toList());
+    }
+
+    private static DuplicateMatch match(Entry probe, Entry candidate, DuplicateMatch.Kind kind, long daysApart) {
+        double similarity = probe.signature == null || candidate.signature == null
+                ? 0 : similarity(probe.signature, candidate.signature);
+        return new DuplicateMatch(probe.id, candidate.id, kind, similarity, daysApart,
+                candidate.cents / 100.0, LocalDate.ofEpochDay(candidate.epochDay).toString());
+    }
+
+    // Fraction of agreeing MinHash values, an estimate of the Jaccard similarity of the shingle sets
+    private static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int h = 0; h < SIGNATURE_SIZE; h++) {
+            if (a[h] == b[h]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    private static Entry entry(Expense expense) {
+        if (expense.getDate() == null) {
+            return null;
+        }
+        long epochDay;
+        try {
+            // DATETIME columns come back with a time part
+            String date = expense.getDate();
+            epochDay = LocalDate.parse(date.length() > 10 ? date.substring(0, 10) : date).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        return new Entry(expense.getId(), expense.getUserId(), Math.round(expense.getAmount() * 100),
+                epochDay, signature(expense.getDescription()));
+    }
+
+    static int[] signature(String description) {
+        String text = normalize(description);
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, text.length() - SHINGLE_LENGTH + 1);
+        for (int s = 0; s < shingles; s++) {
+            // Up to three 16-bit chars fit in one long without collisions
+            long shingle = 0;
+            for (int i = s; i < Math.min(text.length(), s + SHINGLE_LENGTH); i++) {
+                shingle = (shingle << 16) | text.charAt(i);
+            }
+            for (int h = 0; h < SIGNATURE_SIZE; h++) {
+                int value = (int) ((shingle * HASH_MULTIPLIERS[h] + HASH_OFFSETS[h]) >>> 32);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    // Lower case, with runs of punctuation and white space collapsed to one space
+    private static String normalize(String description) {
+        if (description == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder(description.length());
+        boolean space = false;
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return text.toString();
+    }
+
+    // Keys are hashes; collisions only add candidates, which are checked field by field
+    private static long exactKey(int userId, long cents, long dateBucket) {
+        return ((userId * GOLDEN_RATIO) + cents) * GOLDEN_RATIO + dateBucket;
+    }
+
+    private static long bandKey(int userId, int band, int[] signature) {
+        long key = userId * GOLDEN_RATIO + band;
+        for (int r = band * ROWS_PER_BAND; r < (band + 1) * ROWS_PER_BAND; r++) {
+            key = key * GOLDEN_RATIO + signature[r];
+        }
+        return key;
+    }
+
+    private static class Entry
+    {
+        private final int id;
+        private final int userId;
+        private final long cents;
+        private final long epochDay;
+        private final int[] signature;
+        // Next entry in the same exact bucket and in the same bucket of each band
+        private Entry nextExact;
+        private final Entry[] nextInBand;
+
+        Entry(int id, int userId, long cents, long epochDay, int[] signature) {
+            this.id = id;
+            this.userId = userId;
+            this.cents = cents;
+            this.epochDay = epochDay;
+            this.signature = signature;
+            this.nextInBand = signature == null ? null : new Entry[BANDS];
+        }
+    }
+}
@@ -1,20 +1,81 @@
 package com.expense.manager.service;
 
+import com.expense.manager.cache.ExpenseCache;
+import com.expense.manager.cache.ReportCache;
+import com.expense.manager.cache.ReportCache.ReportType;
 import com.expense.manager.dao.ApprovalDAO;
 import com.expense.manager.dao.ExpenseDAO;
+import com.expense.manager.model.Approval;
+import com.expense.manager.model.DuplicateMatch;
 import com.expense.manager.model.Expense;
+import com.expense.manager.model.TeamReport;
+import com.expense.manager.model.TrendReport;
+import com.expense.manager.util.ExpenseIdMarks;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ExpenseService {
     private ExpenseDAO expenseDAO;
     private ApprovalDAO approvalDAO;
+    private ReportCache reportCache;
+    private DuplicateDetector duplicateDetector;
+    private TrendReportEngine trendEngine = new TrendReportEngine();
+    private ExpenseCache duplicateIndexSeed;
+    private CompletableFuture<Void> duplicateIndexLoad;
+    private volatile boolean approvalsCommittedLater;
+    // Decisions queued but not yet in the table, with the expense as it was before
+    private final Map<Integer, StatusChange> uncommitted = new ConcurrentHashMap<>();
 
     public ExpenseService(ExpenseDAO expenseDAO, ApprovalDAO approvalDAO) {
+        this(expenseDAO, approvalDAO, null);
+    }
+
+    // reportCache may be null to run every report against the DAO
+    public ExpenseService(ExpenseDAO expenseDAO, ApprovalDAO approvalDAO, ReportCache reportCache) {
+        this(expenseDAO, approvalDAO, reportCache, null);
+    }
+
+    // duplicateDetector may be null to skip duplicate checks
+    public ExpenseService(ExpenseDAO expenseDAO, ApprovalDAO approvalDAO, ReportCache reportCache,
+                          DuplicateDetector duplicateDetector) {
         this.expenseDAO = expenseDAO;
         this.approvalDAO = approvalDAO;
+        this.reportCache = reportCache;
+        this.duplicateDetector = duplicateDetector;
+    }
+
+    public ReportCache getReportCache() {
+        return reportCache;
+    }
+
+    /**
+     * For approval DAOs that queue decisions and commit them in the background:
+     * cached reports are then invalidated when approvalsCommitted reports the
+     * decision written, since invalidating on queueing would let a report read
+     * before the commit be cached again.
+     */
+    public void setApprovalsCommittedLater(boolean approvalsCommittedLater) {
+        this.approvalsCommittedLater = approvalsCommittedLater;
+    }
+
+    // Called by the background approval writer after each committed batch
+    public void approvalsCommitted(List<Approval> approvals) {
+        for (Approval approval : approvals) {
+            StatusChange change = uncommitted.remove(approval.getExpenseId());
+            if (change != null) {
+                reportCache.invalidate(change.before, change.newStatus);
+            }
+        }
     }
 
     public List<Expense> getPendingExpenses() {
@@ -35,9 +96,69 @@ public class ExpenseService {
         }
     }
 
+    /**
+     * Starts building the duplicate index in the background. With an expense cache
+     * the index is seeded from its rows, so only the expenses newer than the cache
+     * are read from the database.
+     */
+    public synchronized void loadDuplicateIndex(ExpenseCache cache) {
+        duplicateIndexSeed = cache;
+        startDuplicateIndexLoad();
+    }
+
+    private synchronized void startDuplicateIndexLoad() {
+        if (duplicateDetector == null || (duplicateIndexLoad != null && !duplicateIndexLoad.isDone())) {
+            return;
+        }
+        ExpenseCache seed = duplicateIndexSeed;
+        duplicateIndexLoad = CompletableFuture.runAsync(() -> {
+            try {
+                if (seed != null) {
+                    // Marks first: every row they cover is then among the rows read next
+                    ExpenseIdMarks marks = seed.getIdMarks();
+                    duplicateDetector.seed(seed.all(), marks);
+                }
+                duplicateDetector.refresh(expenseDAO);
+            } catch (Exception e) {
+                System.err.println("Service Error - Failed to load the duplicate index: " + e.getMessage());
+            }
+        });
+    }
+
+    public boolean isDuplicateIndexLoaded() {
+        return duplicateDetector != null && duplicateDetector.isLoaded();
+    }
+
+    /**
+     * Returns the likely duplicates of each given expense that has any, keyed by
+     * expense id. The detector's index is first caught up with new expenses. Until
+     * the index is loaded nothing is flagged; the load is started (or retried, if
+     * it failed) in the background instead of blocking the caller.
+     */
+    public Map<Integer, List<DuplicateMatch>> findDuplicateSuspects(List<Expense> expenses) {
+        if (duplicateDetector == null || expenses.isEmpty()) {
+            return new HashMap<>();
+        }
+        if (!duplicateDetector.isLoaded()) {
+            startDuplicateIndexLoad();
+            return new HashMap<>();
+        }
+        try {
+            duplicateDetector.refresh(expenseDAO);
+            return duplicateDetector.findDuplicates(expenses);
+        } catch (Exception e) {
+            System.err.println("Service Error - Failed to check for duplicate expenses: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    public List<DuplicateMatch> findDuplicateSuspects(Expense expense) {
+        return findDuplicateSuspects(List.of(expense)).getOrDefault(expense.getId(), new ArrayList<>());
+    }
+
     public boolean approveExpense(int expenseId, int managerId, String comment) {
         try {
-            approvalDAO.updateApproval(expenseId, "approved", managerId, comment, LocalDate.now().toString());
+            decide(expenseId, "approved", managerId, comment);
             return true;
         } catch (Exception e) {
             System.err.println("Service Error - Failed to approve expense: " + e.getMessage());
@@ -47,7 +168,7 @@ public class ExpenseService {
 
     public boolean denyExpense(int expenseId, int managerId, String comment) {
         try {
-            approvalDAO.updateApproval(expenseId, "denied", managerId, comment, LocalDate.now().toString());
+            decide(expenseId, "denied", managerId, comment);
             return true;
         } catch (Exception e) {
             System.err.println("Service Error - Failed to deny expense: " + e.getMessage());
@@ -57,16 +178,67 @@ public class ExpenseService {
 
     public List<Expense> generateEmployeeReport(String username) {
         try {
-            return expenseDAO.getExpensesByEmployee(username);
+            // Username comparison in the database is case-insensitive
+            ReportCache.ReportKey key = ReportCache.key(ReportType.EMPLOYEE, username.toLowerCase());
+            List<Expense> cached = reportCache == null ? null : reportCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            long generation = reportCache == null ? 0 : reportCache.getGeneration();
+            List<Expense> expenses = expenseDAO.getExpensesByEmployee(username);
+            return reportCache == null ? expenses : reportCache.put(key, expenses, generation);
         } catch (Exception e) {
             System.err.println("Service Error - Failed to generate employee report: " + e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    /**
+     * Builds one report for a set of employees. Employees whose report is cached
+     * are served from the cache; the rest are fetched together in one query and
+     * cached as individual employee reports.
+     */
+    public TeamReport generateTeamReport(Collection<String> usernames) {
+        try {
+            Map<String, List<Expense>> expensesByEmployee = new LinkedHashMap<>();
+            Set<String> missing = new LinkedHashSet<>();
+            for (String username : usernames) {
+                List<Expense> cached = reportCache == null ? null
+                        : reportCache.get(ReportCache.key(ReportType.EMPLOYEE, username.toLowerCase()));
+                expensesByEmployee.put(username, cached);
+                if (cached == null) {
+                    missing.add(username);
+                }
+            }
+
+            if (!missing.isEmpty()) {
+                long generation = reportCache == null ? 0 : reportCache.getGeneration();
+                Map<String, List<Expense>> fetched = expenseDAO.getExpensesByEmployees(missing);
+                for (String username : missing) {
+                    List<Expense> expenses = fetched.getOrDefault(username, new ArrayList<>());
+                    if (reportCache != null) {
+                        expenses = reportCache.put(ReportCache.key(ReportType.EMPLOYEE, username.toLowerCase()), expenses, generation);
+                    }
+                    expensesByEmployee.put(username, expenses);
+                }
+            }
+            return new TeamReport(expensesByEmployee);
+        } catch (Exception e) {
+            System.err.println("Service Error - Failed to generate team report: " + e.getMessage());
+            return new TeamReport(new LinkedHashMap<>());
+        }
+    }
+
     public List<Expense> generateDateRangeReport(String startDate, String endDate) {
         try {
-            return expenseDAO.getExpensesByDateRange(startDate, endDate);
+            ReportCache.ReportKey key = ReportCache.key(ReportType.DATE_RANGE, startDate, endDate);
+            List<Expense> cached = reportCache == null ? null : reportCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            long generation = reportCache == null ? 0 : reportCache.getGeneration();
+            List<Expense> expenses = expenseDAO.getExpensesByDateRange(startDate, endDate);
+            return reportCache == null ? expenses : reportCache.put(key, expenses, generation);
         } catch (Exception e) {
             System.err.println("Service Error - Failed to generate date range report: " + e.getMessage());
             return new ArrayList<>();
@@ -75,14 +247,76 @@ public class ExpenseService {
 
     public List<Expense> generateStatusReport(String status) {
         try {
-            return expenseDAO.getExpensesByStatus(status);
+            // Status comparison in the database is case-insensitive
+            ReportCache.ReportKey key = ReportCache.key(ReportType.STATUS, status.toLowerCase());
+            List<Expense> cached = reportCache == null ? null : reportCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            long generation = reportCache == null ? 0 : reportCache.getGeneration();
+            List<Expense> expenses = expenseDAO.getExpensesByStatus(status);
+            return reportCache == null ? expenses : reportCache.put(key, expenses, generation);
         } catch (Exception e) {
             System.err.println("Service Error - Failed to generate status report: " + e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    private void decide(int expenseId, String status, int managerId, String comment) throws Exception {
+        Expense before = expenseForInvalidation(expenseId);
+        if (before == null) {
+            approvalDAO.updateApproval(expenseId, status, managerId, comment, LocalDate.now().toString());
+        } else if (approvalsCommittedLater) {
+            // Recorded first: the writer may commit before updateApproval returns
+            uncommitted.put(expenseId, new StatusChange(before, status));
+            try {
+                approvalDAO.updateApproval(expenseId, status, managerId, comment, LocalDate.now().toString());
+            } catch (Exception e) {
+                uncommitted.remove(expenseId);
+                throw e;
+            }
+        } else {
+            approvalDAO.updateApproval(expenseId, status, managerId, comment, LocalDate.now().toString());
+            reportCache.invalidate(before, status);
+        }
+    }
+
+    // The old status, date and employee decide which cached reports a decision invalidates
+    private Expense expenseForInvalidation(int expenseId) throws Exception {
+        // A background commit can land after a report is cached, so the cache being empty now proves nothing
+        if (reportCache == null || (reportCache.size() == 0 && !approvalsCommittedLater)) {
+            return null;
+        }
+        return expenseDAO.getExpenseById(expenseId);
+    }
+
+    public TrendReport generateTrendReport(String startDate, String endDate,
+                                           TrendReportEngine.Granularity granularity, int movingAverageWindow) {
+        try {
+            LocalDate start = LocalDate.parse(startDate);
+            LocalDate end = LocalDate.parse(endDate);
+            if (end.isBefore(start)) {
+                throw new IllegalArgumentException("End date " + endDate + " is before start date " + startDate);
+            }
+            List<Expense> expenses = generateDateRangeReport(startDate, endDate);
+            return trendEngine.compute(expenses, start, end, granularity, movingAverageWindow);
+        } catch (Exception e) {
+            System.err.println("Service Error - Failed to generate trend report: " + e.getMessage());
+            return new TrendReport(granularity.name(), movingAverageWindow, new ArrayList<>());
+        }
+    }
+
     public double calculateTotal(List<Expense> expenses) {
         return expenses.stream().mapToDouble(Expense::getAmount).sum();
     }
+
+    private static class StatusChange {
+        private final Expense before;
+        private final String newStatus;
+
+        StatusChange(Expense before, String newStatus) {
+            this.before = before;
+            this.newStatus = newStatus;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.expense.manager.service;
+
+import com.expense.manager.model.Expense;
+import com.expense.manager.model.TrendPoint;
+import com.expense.manager.model.TrendReport;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Turns a flat list of expenses into a weekly or monthly time series.
+ *
+ * Expenses are sorted by date once; the bucket range is then split recursively
+ * on a fork/join pool and each leaf aggregates its buckets by binary-searching
+ * their slice of the sorted array. Moving averages and period-over-period
+ * changes are filled in afterwards, since they depend on neighbouring buckets.
+ */
+public class TrendReportEngine
+{
+    public enum Granularity { WEEKLY, MONTHLY }
+
+    // Buckets per leaf task; a bucket is cheap once its slice is located
+    private static final int BUCKETS_PER_TASK = 4;
+
+    private final ForkJoinPool pool;
+
+    public TrendReportEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public TrendReportEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public TrendReport compute(List<Expense> expenses, LocalDate start, LocalDate end,
+                               Granularity granularity, int movingAverageWindow) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("End date " + end + " is before start date " + start);
+        }
+        Expense[] sorted = expenses.stream()
+                .filter(expense -> expense.getDate() != null)
+                .toArray(Expense[]::new);
+        Arrays.parallelSort(sorted, Comparator.comparing(Expense::getDate));
+
+        List<LocalDate> boundaries = bucketBoundaries(start, end, granularity);
+        List<TrendPoint> points = pool.invoke(new BucketTask(sorted, boundaries, 0, boundaries.size() - 1));
+
+        int window = Math.max(1, movingAverageWindow);
+        double windowSum = 0;
+        for (int i = 0; i < points.size(); i++) {
+            TrendPoint point = points.get(i);
+            windowSum += point.getTotal();
+            if (i >= window) {
+                windowSum -= points.get(i - window).getTotal();
+            }
+            point.setMovingAverage(windowSum / Math.min(i + 1, window));
+
+            if (i > 0) {
+                double previous = points.get(i - 1).getTotal();
+                point.setChange(point.getTotal() - previous);
+                point.setChangePercent(previous == 0 ? null : (point.getTotal() - previous) / previous * 100);
+            }
+        }
+        return new TrendReport(granularity.name(), window, points);
+    }
+
+    // Start of every bucket plus the exclusive end of the last one; the first and
+    // last buckets are clipped to the requested range.
+    static List<LocalDate> bucketBoundaries(LocalDate start, LocalDate end, Granularity granularity) {
+        List<LocalDate> boundaries = new ArrayList<>();
+        LocalDate exclusiveEnd = end.plusDays(1);
+        boundaries.add(start);
+
+        LocalDate next = granularity == Granularity.WEEKLY
+                ? start.with(TemporalAdjusters.next(DayOfWeek.MONDAY))
+                : start.with(TemporalAdjusters.firstDayOfNextMonth());
+        while (next.isBefore(exclusiveEnd)) {
+            boundaries.add(next);
+            next = granularity == Granularity.WEEKLY ? next.plusWeeks(1) : next.plusMonths(1);
+        }
+        boundaries.add(exclusiveEnd);
+        return boundaries;
+    }
+
+    private static class BucketTask extends RecursiveTask<List<TrendPoint>> {
+        // ForkJoinTask is Serializable; these tasks are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private final Expense[] sorted;
+        private final List<LocalDate> boundaries;
+        private final int from;
+        private final int to;
+
+        BucketTask(Expense[] sorted, List<LocalDate> boundaries, int from, int to) {
+            this.sorted = sorted;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<TrendPoint> compute() {
+            if (to - from <= BUCKETS_PER_TASK) {
+                List<TrendPoint> points = new ArrayList<>(to - from);
+                for (int bucket = from; bucket < to; bucket++) {
+                    points.add(aggregate(boundaries.get(bucket), boundaries.get(bucket + 1)));
+                }
+                return points;
+            }
+
+            int middle = (from + to) >>> 1;
+            BucketTask left = new BucketTask(sorted, boundaries, from, middle);
+            left.fork();
+            List<TrendPoint> right = new BucketTask(sorted, boundaries, middle, to).compute();
+            List<TrendPoint> points = left.join();
+            points.addAll(right);
+            return points;
+        }
+
+        private TrendPoint aggregate(LocalDate bucketStart, LocalDate bucketEnd) {
+            String startKey = bucketStart.toString();
+            String endKey = bucketEnd.toString();
+
+            double total = 0;
+            int count = 0;
+            Map<String, Double> byEmployee = new HashMap<>();
+            Map<String, Double> byStatus = new HashMap<>();
+            for (int i = lowerBound(startKey); i < sorted.length && sorted[i].getDate().compareTo(endKey) < 0; i++) {
+                Expense expense = sorted[i];
+                total += expense.getAmount();
+                count++;
+                byEmployee.merge(String.valueOf(expense.getEmployeeName()), expense.getAmount(), Double::sum);
+                byStatus.merge(String.valueOf(expense.getStatus()), expense.getAmount(), Double::sum);
+            }
+            return new TrendPoint(startKey, bucketEnd.minusDays(1).toString(), total, count, byEmployee, byStatus);
+        }
+
+        // First index whose date is on or after key
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid].getDate().compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.expense.manager.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.function.Function;
+
+/**
+ * Renders a list of rows as a fixed-width console table.
+ *
+ * Column widths are sized to the widest cell (capped per column), and each page is
+ * formatted into a single reusable buffer and written with one print call instead of
+ * one synchronized, autoflushing System.out call per field. Result sets larger than
+ * one page can be browsed interactively (next / previous / jump to page).
+ */
+public class ConsoleTable<T>
+{
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final char RULE_CHAR = '─';
+    private static final String ELLIPSIS = "...";
+
+    private final List<Column<T>> columns = new ArrayList<>();
+    private final StringBuilder buffer = new StringBuilder(8192);
+    private List<T> rows = new ArrayList<>();
+    private int[] widths;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    public ConsoleTable<T> addColumn(String header, int maxWidth, Function<T, ?> extractor) {
+        columns.add(new Column<>(header, maxWidth, false, extractor));
+        widths = null;
+        return this;
+    }
+
+    public ConsoleTable<T> addRightAlignedColumn(String header, int maxWidth, Function<T, ?> extractor) {
+        columns.add(new Column<>(header, maxWidth, true, extractor));
+        widths = null;
+        return this;
+    }
+
+    public ConsoleTable<T> setRows(List<T> rows) {
+        this.rows = rows;
+        widths = null;
+        return this;
+    }
+
+    public ConsoleTable<T> setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+        return this;
+    }
+
+    public int getPageCount() {
+        return Math.max(1, (rows.size() + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * Prints the first page and, when there is more than one, lets the user page
+     * through the rest until they quit or press Enter on the last page. Pages are
+     * jumped to with "j3", "j 3" or "jump 3".
+     */
+    public void display(Scanner scanner) {
+        int page = 0;
+        int pageCount = getPageCount();
+        printPage(page);
+
+        while (pageCount > 1) {
+            boolean lastPage = page + 1 >= pageCount;
+            System.out.print(lastPage
+                    ? "[p]rev, [j]ump <page>, [q]uit or Enter: "
+                    : "[n]ext or Enter, [p]rev, [j]ump <page>, [q]uit: ");
+            String command = scanner.nextLine().trim().toLowerCase();
+
+            if (command.isEmpty() && lastPage) {
+                return;
+            } else if (command.isEmpty() || command.equals("n")) {
+                if (page + 1 >= pageCount) {
+                    System.out.println("Already on the last page.");
+                    continue;
+                }
+                page++;
+            } else if (command.equals("p")) {
+                if (page == 0) {
+                    System.out.println("Already on the first page.");
+                    continue;
+                }
+                page--;
+            } else if (command.startsWith("j")) {
+                String argument = command.substring(command.startsWith("jump") ? 4 : 1).trim();
+                try {
+                    int target = Integer.parseInt(argument) - 1;
+                    if (target < 0 || target >= pageCount) {
+                        System.out.println("Page must be between 1 and " + pageCount + ".");
+                        continue;
+                    }
+                    page = target;
+                } catch (NumberFormatException e) {
+                    System.out.println("Usage: jump <page>");
+                    continue;
+                }
+            } else if (command.equals("q")) {
+                return;
+            } else {
+                System.out.println("Unknown command.");
+                continue;
+            }
+            printPage(page);
+        }
+    }
+
+    /**
+     * Formats one page into the shared buffer and writes it in a single call.
+     */
+    public void printPage(int page) {
+        if (widths == null) {
+            computeWidths();
+        }
+
+        buffer.setLength(0);
+        int totalWidth = totalWidth();
+
+        for (int c = 0; c < columns.size(); c++) {
+            appendCell(columns.get(c).header, c, false);
+        }
+        trimTrailing();
+        buffer.append('\n');
+        appendRule(totalWidth);
+
+        int from = Math.min(page * pageSize, rows.size());
+        int to = Math.min(from + pageSize, rows.size());
+        for (int r = from; r < to; r++) {
+            T row = rows.get(r);
+            for (int c = 0; c < columns.size(); c++) {
+                Column<T> column = columns.get(c);
+                appendCell(cellText(column, row), c, column.rightAligned);
+            }
+            trimTrailing();
+            buffer.append('\n');
+        }
+
+        appendRule(totalWidth);
+        if (getPageCount() > 1) {
+            buffer.append("Page ").append(page + 1).append(" of ").append(getPageCount())
+                    .append(" (rows ").append(from + 1).append('-').append(to)
+                    .append(" of ").append(rows.size()).append(")\n");
+        }
+
+        // one synchronized write (and at most one autoflush) per page
+        System.out.print(buffer);
+    }
+
+    private void computeWidths() {
+        widths = new int[columns.size()];
+        for (int c = 0; c < columns.size(); c++) {
+            widths[c] = columns.get(c).header.length();
+        }
+
+        for (T row : rows) {
+            for (int c = 0; c < columns.size(); c++) {
+                Column<T> column = columns.get(c);
+                int length = Math.min(cellText(column, row).length(), column.maxWidth);
+                if (length > widths[c]) {
+                    widths[c] = length;
+                }
+            }
+        }
+    }
+
+    private int totalWidth() {
+        int total = 0;
+        for (int width : widths) {
+            total += width;
+        }
+        return total + Math.max(0, widths.length - 1);
+    }
+
+    private void appendCell(String text, int column, boolean rightAligned) {
+        int width = widths[column];
+        if (text.length() > width) {
+            text = width > ELLIPSIS.length()
+                    ? text.substring(0, width - ELLIPSIS.length()) + ELLIPSIS
+                    : text.substring(0, width);
+        }
+
+        int padding = width - text.length();
+        if (rightAligned) {
+            pad(padding);
+            buffer.append(text);
+        } else {
+            buffer.append(text);
+            pad(padding);
+        }
+        if (column < widths.length - 1) {
+            buffer.append(' ');
+        }
+    }
+
+    private void appendRule(int width) {
+        for (int i = 0; i < width; i++) {
+            buffer.append(RULE_CHAR);
+        }
+        buffer.append('\n');
+    }
+
+    private void pad(int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.append(' ');
+        }
+    }
+
+    private void trimTrailing() {
+        int length = buffer.length();
+        while (length > 0 && buffer.charAt(length - 1) == ' ') {
+            length--;
+        }
+        buffer.setLength(length);
+    }
+
+    private static <T> String cellText(Column<T> column, T row) {
+        Object value = column.extractor.apply(row);
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * Formats an amount as "$1234.56" without going through String.format.
+     */
+    public static String formatAmount(double amount) {
+        long cents = Math.round(Math.abs(amount) * 100);
+        StringBuilder sb = new StringBuilder(16);
+        if (amount < 0 && cents != 0) {
+            sb.append('-');
+        }
+        sb.append('$').append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction).toString();
+    }
+
+    private static class Column<T>
+    {
+        private final String header;
+        private final int maxWidth;
+        private final boolean rightAligned;
+        private final Function<T, ?> extractor;
+
+        Column(String header, int maxWidth, boolean rightAligned, Function<T, ?> extractor) {
+            this.header = header;
+            this.maxWidth = Math.max(maxWidth, header.length());
+            this.rightAligned = rightAligned;
+            this.extractor = extractor;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.expense.manager.ui;
+
+import com.expense.manager.dao.ExpenseDAO;
+import com.expense.manager.dao.ExpenseDAOImplementation;
+import com.expense.manager.dao.ShardRouter;
+import com.expense.manager.dao.ShardedExpenseDAO;
+import com.expense.manager.dao.UserDAOImplementation;
+import com.expense.manager.ingest.ExpenseImporter;
+import com.expense.manager.model.ImportSummary;
+import com.expense.manager.util.ConnectionProvider;
+import com.expense.manager.util.DatabaseConnection;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bulk-loads a CSV or JSON expense feed:
+ *
+ *   java com.expense.manager.ui.ExpenseImportApp expenses.csv [--restart]
+ *
+ * Progress is checkpointed to <feed>.checkpoint, so running the same command again
+ * after a failure continues where it stopped; --restart discards the checkpoint.
+ * Rejected records are listed in <feed>.rejects.
+ */
+public class ExpenseImportApp
+{
+    private static final Logger logger = Logger.getLogger(ExpenseImportApp.class.getName());
+
+    private static final int IMPORT_THREADS = Integer.getInteger("expense.import.threads", Runtime.getRuntime().availableProcessors());
+    private static final int IMPORT_CHUNK_SIZE = Integer.getInteger("expense.import.chunkSize", ExpenseImporter.DEFAULT_CHUNK_SIZE);
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2 || (args.length == 2 && !args[1].equals("--restart"))) {
+            System.err.println("Usage: ExpenseImportApp <feed.csv|feed.json> [--restart]");
+            System.exit(2);
+        }
+
+        Path feed = Paths.get(args[0]);
+        Path checkpoint = Paths.get(args[0] + ".checkpoint");
+        Path rejects = Paths.get(args[0] + ".rejects");
+        if (!Files.isRegularFile(feed)) {
+            System.err.println("Feed not found: " + feed);
+            System.exit(2);
+        }
+
+        ConnectionProvider connections = null;
+        List<ConnectionProvider> shardConnections = new ArrayList<>();
+        ShardRouter shardRouter = null;
+        int status = 0;
+        try {
+            if (args.length == 2) {
+                Files.deleteIfExists(checkpoint);
+                Files.deleteIfExists(rejects);
+            }
+
+            connections = DatabaseConnection.getConnectionProvider();
+            shardConnections = DatabaseConnection.getShardConnectionProviders();
+            ExpenseDAO expenseDAO;
+            if (shardConnections.isEmpty()) {
+                expenseDAO = new ExpenseDAOImplementation(connections);
+            } else {
+                List<ExpenseDAO> shards = new ArrayList<>();
+                for (ConnectionProvider shard : shardConnections) {
+                    shards.add(new ExpenseDAOImplementation(shard));
+                }
+                shardRouter = new ShardRouter(shards.size());
+                expenseDAO = new ShardedExpenseDAO(shards, shardRouter);
+            }
+
+            ExpenseImporter importer = new ExpenseImporter(expenseDAO, new UserDAOImplementation(connections),
+                    IMPORT_THREADS, IMPORT_CHUNK_SIZE, PROGRESS_INTERVAL_MILLIS);
+            importer.setProgressListener(summary -> System.out.println(progressLine(summary)));
+
+            System.out.println("Importing " + feed + " with " + IMPORT_THREADS + " parser threads, "
+                    + IMPORT_CHUNK_SIZE + " rows per transaction");
+            ImportSummary summary = importer.importFeed(feed, checkpoint, rejects);
+
+            if (summary.getImportedThisRun() == 0 && summary.getResumedFromRecord() == summary.getRecords()) {
+                System.out.println("Feed was already imported (" + summary.getImported()
+                        + " rows); use --restart to import it again.");
+            } else {
+                System.out.println("Done. " + progressLine(summary) + " in " + summary.getElapsedMillis() / 1000.0 + " s");
+            }
+            if (summary.getRejected() > 0) {
+                System.out.println(summary.getRejected() + " records rejected; see " + rejects);
+            }
+        } catch (Exception e) {
+            System.err.println("Import failed: " + e.getMessage());
+            System.err.println("Run the same command again to resume from the last committed chunk.");
+            logger.log(Level.SEVERE, "Import of " + feed + " failed", e);
+            status = 1;
+        } finally {
+            try {
+                if (shardRouter != null) {
+                    shardRouter.close();
+                }
+                for (ConnectionProvider shard : shardConnections) {
+                    shard.close();
+                }
+                if (connections != null) {
+                    connections.close();
+                }
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Error closing database connection", e);
+            }
+        }
+        System.exit(status);
+    }
+
+    private static String progressLine(ImportSummary summary) {
+        return String.format("%,d records, %,d imported, %,d rejected - %,.0f rows/s",
+                summary.getRecords(), summary.getImported(), summary.getRejected(), summary.getRowsPerSecond());
+    }
+}
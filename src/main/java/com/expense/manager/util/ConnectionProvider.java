@@ -0,0 +1,19 @@
+package com.expense.manager.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public interface ConnectionProvider extends AutoCloseable
+{
+    // Connection for read-only report queries; may be served by a replica
+    Connection getReadConnection() throws SQLException;
+
+    // Connection for reads that must see the latest writes (always the primary)
+    Connection getPrimaryReadConnection() throws SQLException;
+
+    // Connection for writes (always the primary)
+    Connection getWriteConnection() throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+}
@@ -3,12 +3,24 @@ package com.expense.manager.util;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatabaseConnection
 {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/expense_db";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "Bhasker8*";
+    private static final String DB_URL = System.getProperty("expense.db.url", "jdbc:mysql://localhost:3306/expense_db");
+    private static final String DB_USER = System.getProperty("expense.db.user", "root");
+    private static final String DB_PASSWORD = System.getProperty("expense.db.password", "Bhasker8*");
+
+    // Comma-separated JDBC URLs of read replicas; empty means everything runs on the primary
+    private static final String DB_REPLICAS = System.getProperty("expense.db.replicas", "");
+    private static final String REPLICA_LAG_QUERY = System.getProperty("expense.db.replicaLagQuery", "SHOW REPLICA STATUS");
+    private static final long REPLICA_MAX_LAG_SECONDS = Long.getLong("expense.db.replicaMaxLagSeconds", 5);
+    private static final long HEALTH_CHECK_INTERVAL_MILLIS = Long.getLong("expense.db.healthCheckIntervalMillis", 10_000);
+
+    // Comma-separated JDBC URLs of expense shards, in shard order; empty means unsharded. Shard i (from 0) of N
+    // must run with auto_increment_increment = N and auto_increment_offset = i + 1 (see ShardRouter)
+    private static final String DB_SHARDS = System.getProperty("expense.db.shards", "");
 
     public static Connection getConnection() throws SQLException
     {
@@ -21,4 +33,66 @@ public class DatabaseConnection
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a provider that sends report queries to the configured replicas and
+     * everything else to the primary. Without replicas the primary connection is
+     * opened eagerly, as getConnection() does, so misconfiguration fails fast.
+     */
+    public static ConnectionProvider getConnectionProvider() throws SQLException
+    {
+        List<DatabaseEndpoint> replicas = new ArrayList<>();
+        for (String url : DB_REPLICAS.split(","))
+        {
+            if (!url.isBlank())
+            {
+                replicas.add(new DatabaseEndpoint("replica-" + (replicas.size() + 1), url.trim(), DB_USER, DB_PASSWORD));
+            }
+        }
+
+        if (replicas.isEmpty())
+        {
+            return new SingleConnectionProvider(getConnection());
+        }
+
+        DatabaseEndpoint primary = new DatabaseEndpoint("primary", DB_URL, DB_USER, DB_PASSWORD);
+        try
+        {
+            primary.connection();
+        } catch (SQLException e)
+        {
+            System.err.println("Database connection failed: " + e.getMessage());
+            throw e;
+        }
+        return new RoutingConnectionProvider(primary, replicas, REPLICA_LAG_QUERY,
+                REPLICA_MAX_LAG_SECONDS, HEALTH_CHECK_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens one connection per configured expense shard, in shard order. Returns an
+     * empty list when expenses are not sharded.
+     */
+    public static List<ConnectionProvider> getShardConnectionProviders() throws SQLException
+    {
+        List<ConnectionProvider> shards = new ArrayList<>();
+        try
+        {
+            for (String url : DB_SHARDS.split(","))
+            {
+                if (!url.isBlank())
+                {
+                    shards.add(new SingleConnectionProvider(DriverManager.getConnection(url.trim(), DB_USER, DB_PASSWORD)));
+                }
+            }
+            return shards;
+        } catch (SQLException e)
+        {
+            System.err.println("Shard connection failed: " + e.getMessage());
+            for (ConnectionProvider shard : shards)
+            {
+                shard.close();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.expense.manager.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * One database the application can route to. The connection is opened on first
+ * use and reopened if it has been closed. Health checks run on a second
+ * connection of their own, so a check never waits behind a query on the first.
+ */
+public class DatabaseEndpoint
+{
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String name;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Object checkLock = new Object();
+
+    private Connection conn;
+    private Connection checkConn;
+    // Unknown until the first check
+    private volatile boolean healthy;
+    private volatile long lastLagSeconds;
+
+    public DatabaseEndpoint(String name, String url, String user, String password)
+    {
+        this.name = name;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    public String getName() { return name; }
+    public String getUrl() { return url; }
+    public boolean isHealthy() { return healthy; }
+    public long getLastLagSeconds() { return lastLagSeconds; }
+
+    public synchronized Connection connection() throws SQLException
+    {
+        if (conn == null || conn.isClosed())
+        {
+            conn = DriverManager.getConnection(url, user, password);
+        }
+        return conn;
+    }
+
+    /**
+     * Re-validates the endpoint; may block for the validation timeout, so callers
+     * run it off the query path. A replica is healthy when it can be reached and,
+     * if lagQuery is set, it reports a replication lag no greater than maxLagSeconds.
+     */
+    public boolean checkHealth(String lagQuery, long maxLagSeconds)
+    {
+        synchronized (checkLock)
+        {
+            healthy = probe(lagQuery, maxLagSeconds);
+            if (!healthy)
+            {
+                closeQuietly();
+            }
+            return healthy;
+        }
+    }
+
+    // Until the next check
+    public void markUnhealthy()
+    {
+        healthy = false;
+    }
+
+    // Caller holds checkLock
+    private boolean probe(String lagQuery, long maxLagSeconds)
+    {
+        try
+        {
+            if (checkConn == null || !checkConn.isValid(VALIDATION_TIMEOUT_SECONDS))
+            {
+                if (checkConn != null)
+                {
+                    checkConn.close();
+                }
+                checkConn = null;
+                checkConn = DriverManager.getConnection(url, user, password);
+            }
+            if (lagQuery == null || lagQuery.isBlank())
+            {
+                lastLagSeconds = 0;
+                return true;
+            }
+
+            try (Statement stmt = checkConn.createStatement();
+                 ResultSet rs = stmt.executeQuery(lagQuery))
+            {
+                if (!rs.next())
+                {
+                    // Replication not configured: the data may be arbitrarily old
+                    return false;
+                }
+                Object lag = readLag(rs);
+                if (lag == null)
+                {
+                    // Replication threads stopped
+                    return false;
+                }
+                lastLagSeconds = ((Number) lag).longValue();
+                return lastLagSeconds <= maxLagSeconds;
+            }
+        } catch (SQLException | ClassCastException e)
+        {
+            System.err.println("Health check failed for " + name + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // An unhealthy endpoint's connection is dropped, so it is reopened once it recovers
+    private void closeQuietly()
+    {
+        try
+        {
+            closeConnection();
+        } catch (SQLException e)
+        {
+            System.err.println("Closing " + name + " failed: " + e.getMessage());
+        }
+    }
+
+    private static Object readLag(ResultSet rs) throws SQLException
+    {
+        try
+        {
+            return rs.getObject("Seconds_Behind_Source");
+        } catch (SQLException e)
+        {
+            return rs.getObject(1);
+        }
+    }
+
+    public void close() throws SQLException
+    {
+        synchronized (checkLock)
+        {
+            if (checkConn != null)
+            {
+                checkConn.close();
+                checkConn = null;
+            }
+        }
+        closeConnection();
+    }
+
+    private synchronized void closeConnection() throws SQLException
+    {
+        if (conn != null && !conn.isClosed())
+        {
+            conn.close();
+        }
+        conn = null;
+    }
+}
@@ -0,0 +1,96 @@
+package com.expense.manager.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How far a reader that copies new expenses (the expense cache, the duplicate
+ * index) has got; see ExpenseDAO.getNewExpenses. The expense cache keeps its
+ * marks in its snapshot, so a restart only scans the window below them.
+ *
+ * Expense ids only roughly follow insertion order. Each shard draws ids from its
+ * own sequence, so there is one high-water mark per database. And an id is taken
+ * when a row is inserted but becomes visible only when its transaction commits: a
+ * bulk import committing thousands of rows at once can make ids appear below a
+ * mark that has already moved past them. Every scan therefore re-reads the ids in
+ * a trailing window of overlap ids below the mark, and fetches the rows of those
+ * the reader does not have yet.
+ */
+public class ExpenseIdMarks
+{
+    // Twice the default import transaction size
+    public static final int DEFAULT_OVERLAP = 10_000;
+
+    private final int overlap;
+    private final List<ExpenseIdMarks> shards = new ArrayList<>();
+    private int highWaterMark;
+
+    public ExpenseIdMarks()
+    {
+        this(DEFAULT_OVERLAP);
+    }
+
+    public ExpenseIdMarks(int overlap)
+    {
+        this.overlap = Math.max(0, overlap);
+    }
+
+    // Marks as saved by getShardHighWaterMarks, with the default overlap
+    public static ExpenseIdMarks restore(int highWaterMark, int[] shardHighWaterMarks)
+    {
+        ExpenseIdMarks marks = new ExpenseIdMarks();
+        marks.highWaterMark = highWaterMark;
+        for (int shard = 0; shard < shardHighWaterMarks.length; shard++)
+        {
+            marks.forShard(shard).highWaterMark = shardHighWaterMarks[shard];
+        }
+        return marks;
+    }
+
+    public synchronized ExpenseIdMarks copy()
+    {
+        ExpenseIdMarks copy = new ExpenseIdMarks(overlap);
+        copy.highWaterMark = highWaterMark;
+        for (ExpenseIdMarks shard : shards)
+        {
+            copy.shards.add(shard.copy());
+        }
+        return copy;
+    }
+
+    // The marks of one shard of a sharded database
+    public synchronized ExpenseIdMarks forShard(int shard)
+    {
+        while (shards.size() <= shard)
+        {
+            shards.add(new ExpenseIdMarks(overlap));
+        }
+        return shards.get(shard);
+    }
+
+    // Scans read the ids above this
+    public synchronized int getScanStart()
+    {
+        return Math.max(0, highWaterMark - overlap);
+    }
+
+    public synchronized int getHighWaterMark()
+    {
+        return highWaterMark;
+    }
+
+    public synchronized int[] getShardHighWaterMarks()
+    {
+        int[] marks = new int[shards.size()];
+        for (int shard = 0; shard < marks.length; shard++)
+        {
+            marks[shard] = shards.get(shard).getHighWaterMark();
+        }
+        return marks;
+    }
+
+    public synchronized void advance(int id)
+    {
+        highWaterMark = Math.max(highWaterMark, id);
+    }
+}
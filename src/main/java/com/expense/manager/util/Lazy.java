@@ -0,0 +1,42 @@
+package com.expense.manager.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds a value that is created on first use and then reused.
+ */
+public class Lazy<T> implements Supplier<T>
+{
+    private Supplier<T> factory;
+    private volatile T value;
+
+    public Lazy(Supplier<T> factory)
+    {
+        this.factory = factory;
+    }
+
+    @Override
+    public T get()
+    {
+        T result = value;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = value;
+                if (result == null)
+                {
+                    result = factory.get();
+                    value = result;
+                    factory = null;
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isInitialized()
+    {
+        return value != null;
+    }
+}
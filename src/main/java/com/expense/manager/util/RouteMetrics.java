@@ -0,0 +1,39 @@
+package com.expense.manager.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how many connections each route handed out, e.g. "replica-1.read",
+ * "primary.read-fallback", "primary.primary-read" or "primary.write".
+ */
+public class RouteMetrics
+{
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public void record(String route)
+    {
+        counters.computeIfAbsent(route, k -> new LongAdder()).increment();
+    }
+
+    public long get(String route)
+    {
+        LongAdder counter = counters.get(route);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public Map<String, Long> snapshot()
+    {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((route, counter) -> snapshot.put(route, counter.sum()));
+        return snapshot;
+    }
+
+    @Override
+    public String toString()
+    {
+        return snapshot().toString();
+    }
+}
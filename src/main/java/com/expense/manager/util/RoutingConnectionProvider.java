@@ -0,0 +1,139 @@
+package com.expense.manager.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only queries round-robin across healthy replicas and everything
+ * else to the primary. When no replica is healthy (unreachable, or lagging more
+ * than maxLagSeconds behind), reads fall back to the primary.
+ *
+ * Replica health and lag are checked by a background thread once per check
+ * interval, so the read path only looks at the last result. Until its first
+ * check completes a replica counts as unhealthy.
+ */
+public class RoutingConnectionProvider implements ConnectionProvider
+{
+    private final DatabaseEndpoint primary;
+    private final List<DatabaseEndpoint> replicas;
+    private final String lagQuery;
+    private final long maxLagSeconds;
+    private final ScheduledExecutorService healthChecker;
+    private final RouteMetrics metrics = new RouteMetrics();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public RoutingConnectionProvider(DatabaseEndpoint primary, List<DatabaseEndpoint> replicas,
+                                     String lagQuery, long maxLagSeconds, long healthCheckIntervalMillis)
+    {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, Math.max(1, healthCheckIntervalMillis), TimeUnit.MILLISECONDS);
+    }
+
+    // Runs on the health check thread; callable directly to check now
+    public void checkReplicas()
+    {
+        for (DatabaseEndpoint replica : replicas)
+        {
+            try
+            {
+                replica.checkHealth(lagQuery, maxLagSeconds);
+            } catch (RuntimeException e)
+            {
+                // Keep the schedule alive
+                replica.markUnhealthy();
+                System.err.println("Health check failed for " + replica.getName() + ": " + e);
+            }
+        }
+    }
+
+    @Override
+    public Connection getReadConnection() throws SQLException
+    {
+        int size = replicas.size();
+        int start = size == 0 ? 0 : Math.floorMod(nextReplica.getAndIncrement(), size);
+
+        for (int i = 0; i < size; i++)
+        {
+            DatabaseEndpoint replica = replicas.get((start + i) % size);
+            if (!replica.isHealthy())
+            {
+                continue;
+            }
+            try
+            {
+                Connection conn = replica.connection();
+                metrics.record(replica.getName() + ".read");
+                return conn;
+            } catch (SQLException e)
+            {
+                System.err.println("Replica " + replica.getName() + " unavailable: " + e.getMessage());
+                replica.markUnhealthy();
+                metrics.record(replica.getName() + ".failure");
+            }
+        }
+
+        metrics.record(primary.getName() + (size == 0 ? ".read" : ".read-fallback"));
+        return primary.connection();
+    }
+
+    @Override
+    public Connection getPrimaryReadConnection() throws SQLException
+    {
+        metrics.record(primary.getName() + ".primary-read");
+        return primary.connection();
+    }
+
+    @Override
+    public Connection getWriteConnection() throws SQLException
+    {
+        metrics.record(primary.getName() + ".write");
+        return primary.connection();
+    }
+
+    public RouteMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    public List<DatabaseEndpoint> getReplicas()
+    {
+        return replicas;
+    }
+
+    @Override
+    public void close() throws SQLException
+    {
+        healthChecker.shutdownNow();
+        SQLException failure = null;
+        for (DatabaseEndpoint replica : replicas)
+        {
+            try
+            {
+                replica.close();
+            } catch (SQLException e)
+            {
+                failure = e;
+            }
+        }
+        primary.close();
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+}
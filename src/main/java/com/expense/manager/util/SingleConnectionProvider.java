@@ -0,0 +1,45 @@
+package com.expense.manager.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Serves every route from one connection; used when no replicas are configured
+ * and by DAOs constructed directly from a Connection.
+ */
+public class SingleConnectionProvider implements ConnectionProvider
+{
+    private final Connection conn;
+
+    public SingleConnectionProvider(Connection conn)
+    {
+        this.conn = conn;
+    }
+
+    @Override
+    public Connection getReadConnection()
+    {
+        return conn;
+    }
+
+    @Override
+    public Connection getPrimaryReadConnection()
+    {
+        return conn;
+    }
+
+    @Override
+    public Connection getWriteConnection()
+    {
+        return conn;
+    }
+
+    @Override
+    public void close() throws SQLException
+    {
+        if (conn != null && !conn.isClosed())
+        {
+            conn.close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.expense.manager.util;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+
+/**
+ * Classifies database errors for the writers that retry: a transient error (lost
+ * connection, deadlock, lock wait timeout) is worth retrying as is, any other
+ * error will fail again with the same rows.
+ */
+public final class SqlErrors
+{
+    // MySQL lock wait timeout and deadlock
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+
+    private SqlErrors()
+    {
+    }
+
+    public static boolean isTransient(Throwable error)
+    {
+        for (Throwable t = error; t != null; t = t.getCause())
+        {
+            if (t instanceof SQLTransientException || t instanceof SQLRecoverableException)
+            {
+                return true;
+            }
+            if (t instanceof SQLException)
+            {
+                SQLException sql = (SQLException) t;
+                String state = sql.getSQLState();
+                // 08: connection exceptions, 40: transaction rollback (deadlock, serialization)
+                if (state != null && (state.startsWith("08") || state.startsWith("40")))
+                {
+                    return true;
+                }
+                if (sql.getErrorCode() == ER_LOCK_WAIT_TIMEOUT || sql.getErrorCode() == ER_LOCK_DEADLOCK)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
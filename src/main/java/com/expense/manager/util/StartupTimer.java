@@ -0,0 +1,41 @@
+package com.expense.manager.util;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records named startup phases as milliseconds since the JVM process started,
+ * so time-to-login-prompt can be measured (and compared with and without the
+ * class-data sharing archive built by the appcds profile).
+ */
+public class StartupTimer
+{
+    private static final Instant PROCESS_START = ProcessHandle.current().info().startInstant().orElse(Instant.now());
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+
+    public static synchronized void mark(String phase)
+    {
+        phases.putIfAbsent(phase, Duration.between(PROCESS_START, Instant.now()).toMillis());
+    }
+
+    public static synchronized Map<String, Long> getPhases()
+    {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public static synchronized String summary()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> phase : phases.entrySet())
+        {
+            if (sb.length() > 0)
+            {
+                sb.append(", ");
+            }
+            sb.append(phase.getKey()).append('=').append(phase.getValue()).append("ms");
+        }
+        return sb.toString();
+    }
+}
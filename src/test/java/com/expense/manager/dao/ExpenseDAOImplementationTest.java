@@ -0,0 +1,53 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseDAOImplementationTest
+{
+    private Connection conn;
+    private ExpenseDAOImplementation dao;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        conn = TestDatabases.open();
+        TestDatabases.addUser(conn, 1, "alice");
+        TestDatabases.addUser(conn, 2, "bob");
+        TestDatabases.addUser(conn, 3, "carol");
+        TestDatabases.addPendingExpense(conn, 1, 1, "2026-03-01");
+        TestDatabases.addPendingExpense(conn, 2, 2, "2026-03-02");
+        TestDatabases.addPendingExpense(conn, 3, 1, "2026-03-03");
+        TestDatabases.addPendingExpense(conn, 4, 3, "2026-03-04");
+        dao = new ExpenseDAOImplementation(conn);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        conn.close();
+    }
+
+    // Runs without the MySQL-only STRAIGHT_JOIN on other databases
+    @Test
+    void teamReportGroupsExpensesByRequestedUsername() throws Exception
+    {
+        Map<String, List<Expense>> team = dao.getExpensesByEmployees(List.of("Alice", "bob", "nobody"));
+
+        assertEquals(List.of("Alice", "bob", "nobody"), List.copyOf(team.keySet()));
+        assertEquals(2, team.get("Alice").size());
+        assertEquals(3, team.get("Alice").get(0).getId());
+        assertEquals(1, team.get("Alice").get(1).getId());
+        assertEquals(2, team.get("bob").get(0).getId());
+        assertTrue(team.get("nobody").isEmpty());
+    }
+}
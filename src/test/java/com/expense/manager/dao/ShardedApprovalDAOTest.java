@@ -0,0 +1,90 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.Approval;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ShardedApprovalDAOTest
+{
+    private Connection shard0;
+    private Connection shard1;
+    private ShardRouter router;
+    private ShardedApprovalDAO dao;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        shard0 = TestDatabases.open();
+        shard1 = TestDatabases.open();
+        TestDatabases.addUser(shard0, 2, "alice");
+        TestDatabases.addUser(shard1, 1, "bob");
+        TestDatabases.addPendingExpense(shard0, 1, 2, "2026-03-05");
+        TestDatabases.addPendingExpense(shard1, 2, 1, "2026-03-04");
+        // Even id, so its home is shard 1, but the row lives on shard 0
+        TestDatabases.addPendingExpense(shard0, 6, 2, "2026-03-06");
+
+        router = new ShardRouter(2);
+        dao = new ShardedApprovalDAO(List.of(new ApprovalDAOImplementation(shard0), new ApprovalDAOImplementation(shard1)), router);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        router.close();
+        shard0.close();
+        shard1.close();
+    }
+
+    @Test
+    void lookupFallsBackToProbing() throws Exception
+    {
+        Approval approval = dao.getApprovalByExpenseId(6);
+
+        assertNotNull(approval);
+        assertEquals("pending", approval.getStatus());
+        assertEquals(0, router.shardForExpense(6));
+        assertNull(dao.getApprovalByExpenseId(99));
+    }
+
+    @Test
+    void batchUpdateFindsRelocatedRowsAndReportsUnmatched() throws Exception
+    {
+        List<Approval> unmatched = dao.updateApprovals(List.of(decision(1), decision(2), decision(6), decision(99)));
+
+        assertEquals(1, unmatched.size());
+        assertEquals(99, unmatched.get(0).getExpenseId());
+        for (int expenseId : new int[]{1, 2, 6})
+        {
+            Approval stored = dao.getApprovalByExpenseId(expenseId);
+            assertEquals("approved", stored.getStatus());
+            assertEquals(7, stored.getReviewerId());
+            assertEquals("2026-03-10", stored.getReviewDate());
+        }
+        assertNull(new ApprovalDAOImplementation(shard1).getApprovalByExpenseId(6));
+    }
+
+    @Test
+    void singleUpdateFallsBackToProbing() throws Exception
+    {
+        dao.updateApproval(6, "rejected", 7, "duplicate", "2026-03-10");
+
+        assertEquals("rejected", new ApprovalDAOImplementation(shard0).getApprovalByExpenseId(6).getStatus());
+    }
+
+    private static Approval decision(int expenseId)
+    {
+        Approval approval = new Approval(0, expenseId, "approved");
+        approval.setReviewerId(7);
+        approval.setComment("ok");
+        approval.setReviewDate("2026-03-10");
+        return approval;
+    }
+}
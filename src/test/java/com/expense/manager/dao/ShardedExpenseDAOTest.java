@@ -0,0 +1,145 @@
+package com.expense.manager.dao;
+
+import com.expense.manager.model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ShardedExpenseDAOTest
+{
+    private Connection shard0;
+    private Connection shard1;
+    private final AtomicInteger shard0Calls = new AtomicInteger();
+    private final AtomicInteger shard1Calls = new AtomicInteger();
+    private ShardRouter router;
+    private ShardedExpenseDAO dao;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        // Two shards laid out as in production: user ids mod 2, expense ids odd on shard 0, even on shard 1
+        shard0 = TestDatabases.open();
+        shard1 = TestDatabases.open();
+        TestDatabases.addUser(shard0, 2, "alice");
+        TestDatabases.addUser(shard1, 1, "bob");
+        TestDatabases.addPendingExpense(shard0, 1, 2, "2026-03-05");
+        TestDatabases.addPendingExpense(shard0, 3, 2, "2026-03-01");
+        TestDatabases.addPendingExpense(shard1, 2, 1, "2026-03-04");
+        TestDatabases.addPendingExpense(shard1, 4, 1, "2026-02-28");
+
+        router = new ShardRouter(2);
+        dao = new ShardedExpenseDAO(List.of(
+                counting(new ExpenseDAOImplementation(shard0), shard0Calls),
+                counting(new ExpenseDAOImplementation(shard1), shard1Calls)), router);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        router.close();
+        shard0.close();
+        shard1.close();
+    }
+
+    @Test
+    void mergeKeepsNewestFirstAcrossLists()
+    {
+        List<Expense> merged = ShardedExpenseDAO.merge(List.of(
+                List.of(expense(1, "2026-03-05"), expense(3, "2026-03-01")),
+                List.of(),
+                List.of(expense(2, "2026-03-04"), expense(4, "2026-02-28"), expense(6, null))));
+
+        assertEquals(List.of(1, 2, 3, 4, 6), ids(merged));
+    }
+
+    @Test
+    void scatteredListQueriesAreMergedByDate() throws Exception
+    {
+        List<Expense> pending = dao.getPendingExpenses();
+
+        assertEquals(List.of(1, 2, 3, 4), ids(pending));
+        assertEquals("alice", pending.get(0).getEmployeeName());
+        assertEquals("bob", pending.get(1).getEmployeeName());
+    }
+
+    @Test
+    void pointLookupGoesToTheHomeShardOnly() throws Exception
+    {
+        assertNotNull(dao.getExpenseById(3));
+        assertEquals(1, shard0Calls.get());
+        assertEquals(0, shard1Calls.get());
+
+        assertNotNull(dao.getExpenseById(4));
+        assertEquals(1, shard0Calls.get());
+        assertEquals(1, shard1Calls.get());
+    }
+
+    @Test
+    void rowOutsideTheIdLayoutIsFoundByProbingAndRemembered() throws Exception
+    {
+        // Even id, so its home is shard 1, but the row was migrated onto shard 0
+        TestDatabases.addPendingExpense(shard0, 6, 2, "2026-03-06");
+
+        Expense found = dao.getExpenseById(6);
+
+        assertNotNull(found);
+        assertEquals("alice", found.getEmployeeName());
+        assertEquals(0, router.shardForExpense(6));
+
+        shard0Calls.set(0);
+        shard1Calls.set(0);
+        assertNotNull(dao.getExpenseById(6));
+        assertEquals(1, shard0Calls.get());
+        assertEquals(0, shard1Calls.get());
+    }
+
+    @Test
+    void missingRowIsNotRemembered() throws Exception
+    {
+        assertNull(dao.getExpenseById(99));
+        assertEquals(0, router.shardForExpense(99));
+        assertNull(dao.getExpenseById(100));
+        assertEquals(1, router.shardForExpense(100));
+    }
+
+    private static ExpenseDAO counting(ExpenseDAO shard, AtomicInteger calls)
+    {
+        return (ExpenseDAO) Proxy.newProxyInstance(ExpenseDAO.class.getClassLoader(), new Class<?>[]{ExpenseDAO.class},
+                (proxy, method, args) -> {
+                    calls.incrementAndGet();
+                    try
+                    {
+                        return method.invoke(shard, args);
+                    } catch (InvocationTargetException e)
+                    {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static Expense expense(int id, String date)
+    {
+        return new Expense(id, 1, 10.0, "expense " + id, date);
+    }
+
+    private static List<Integer> ids(List<Expense> expenses)
+    {
+        List<Integer> ids = new ArrayList<>();
+        for (Expense expense : expenses)
+        {
+            ids.add(expense.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,68 @@
+package com.expense.manager.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 databases with the application's tables, standing in for MySQL
+ * shards. Each call to open() creates a new database, dropped when its last
+ * connection closes.
+ */
+final class TestDatabases
+{
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    private TestDatabases()
+    {
+    }
+
+    static Connection open() throws SQLException
+    {
+        // Case-insensitive text comparison, like MySQL's default collation
+        Connection conn = DriverManager.getConnection("jdbc:h2:mem:expenses" + NEXT.incrementAndGet() + ";MODE=MySQL;IGNORECASE=TRUE");
+        try (Statement stmt = conn.createStatement())
+        {
+            stmt.execute("CREATE TABLE users (id INT PRIMARY KEY, username VARCHAR(50) NOT NULL, "
+                    + "password VARCHAR(100), role VARCHAR(20))");
+            stmt.execute("CREATE TABLE expenses (id INT AUTO_INCREMENT PRIMARY KEY, user_id INT NOT NULL, "
+                    + "amount DECIMAL(10, 2) NOT NULL, description VARCHAR(255), date DATE NOT NULL)");
+            stmt.execute("CREATE TABLE approvals (id INT AUTO_INCREMENT PRIMARY KEY, expense_id INT NOT NULL, "
+                    + "status VARCHAR(20) NOT NULL, reviewer INT, comment VARCHAR(255), review_date DATE)");
+            stmt.execute("CREATE TABLE import_progress (feed VARCHAR(255) PRIMARY KEY, records BIGINT NOT NULL)");
+        }
+        return conn;
+    }
+
+    static void addUser(Connection conn, int id, String username) throws SQLException
+    {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO users (id, username, role) VALUES (?, ?, 'employee')"))
+        {
+            stmt.setInt(1, id);
+            stmt.setString(2, username);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Inserts with an explicit id, so a test decides which shard a row is on
+    static void addPendingExpense(Connection conn, int id, int userId, String date) throws SQLException
+    {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO expenses (id, user_id, amount, description, date) VALUES (?, ?, 10.00, ?, ?)"))
+        {
+            stmt.setInt(1, id);
+            stmt.setInt(2, userId);
+            stmt.setString(3, "expense " + id);
+            stmt.setString(4, date);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO approvals (expense_id, status) VALUES (?, 'pending')"))
+        {
+            stmt.setInt(1, id);
+            stmt.executeUpdate();
+        }
+    }
+}
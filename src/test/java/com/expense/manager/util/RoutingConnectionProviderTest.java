@@ -0,0 +1,123 @@
+package com.expense.manager.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingConnectionProviderTest
+{
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica";
+    // H2 has no replication; a one-row table plays the part of SHOW REPLICA STATUS
+    private static final String LAG_QUERY = "SELECT Seconds_Behind_Source FROM replica_status";
+    private static final long MAX_LAG_SECONDS = 5;
+    // Long enough that only the checks the tests run themselves matter
+    private static final long CHECK_INTERVAL_MILLIS = 3_600_000;
+
+    private Connection primaryDatabase;
+    private Connection replicaDatabase;
+    private DatabaseEndpoint primary;
+    private DatabaseEndpoint replica;
+    private RoutingConnectionProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        // Held open so the in-memory databases live as long as the test
+        primaryDatabase = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+        replicaDatabase = DriverManager.getConnection(REPLICA_URL, "sa", "");
+        try (Statement stmt = replicaDatabase.createStatement())
+        {
+            stmt.execute("CREATE TABLE replica_status (Seconds_Behind_Source BIGINT)");
+            stmt.execute("INSERT INTO replica_status VALUES (0)");
+        }
+
+        primary = new DatabaseEndpoint("primary", PRIMARY_URL, "sa", "");
+        replica = new DatabaseEndpoint("replica-1", REPLICA_URL, "sa", "");
+        provider = new RoutingConnectionProvider(primary, List.of(replica), LAG_QUERY, MAX_LAG_SECONDS, CHECK_INTERVAL_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        provider.close();
+        primaryDatabase.close();
+        replicaDatabase.close();
+    }
+
+    @Test
+    void readsGoToAHealthyReplica() throws Exception
+    {
+        provider.checkReplicas();
+
+        assertTrue(replica.isHealthy());
+        assertSame(replica.connection(), provider.getReadConnection());
+        assertSame(primary.connection(), provider.getWriteConnection());
+        assertSame(primary.connection(), provider.getPrimaryReadConnection());
+    }
+
+    @Test
+    void laggingReplicaFailsOverToThePrimaryAndBack() throws Exception
+    {
+        setLag(60);
+        provider.checkReplicas();
+
+        assertFalse(replica.isHealthy());
+        assertEquals(60, replica.getLastLagSeconds());
+        assertSame(primary.connection(), provider.getReadConnection());
+
+        setLag(1);
+        provider.checkReplicas();
+
+        assertTrue(replica.isHealthy());
+        assertSame(replica.connection(), provider.getReadConnection());
+    }
+
+    @Test
+    void replicaWithoutReplicationStatusIsNotUsed() throws Exception
+    {
+        try (Statement stmt = replicaDatabase.createStatement())
+        {
+            stmt.execute("DELETE FROM replica_status");
+        }
+        provider.checkReplicas();
+
+        assertFalse(replica.isHealthy());
+        assertSame(primary.connection(), provider.getReadConnection());
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToThePrimary() throws Exception
+    {
+        // Nothing listens on port 1
+        DatabaseEndpoint unreachable = new DatabaseEndpoint("replica-2", "jdbc:h2:tcp://localhost:1/none", "sa", "");
+        try (RoutingConnectionProvider routing = new RoutingConnectionProvider(primary, List.of(unreachable),
+                LAG_QUERY, MAX_LAG_SECONDS, CHECK_INTERVAL_MILLIS))
+        {
+            routing.checkReplicas();
+
+            assertFalse(unreachable.isHealthy());
+            assertSame(primary.connection(), routing.getReadConnection());
+            assertEquals(1, routing.getMetrics().get("primary.read-fallback"));
+        }
+    }
+
+    private void setLag(long seconds) throws SQLException
+    {
+        try (Statement stmt = replicaDatabase.createStatement())
+        {
+            stmt.executeUpdate("UPDATE replica_status SET Seconds_Behind_Source = " + seconds);
+        }
+    }
+}